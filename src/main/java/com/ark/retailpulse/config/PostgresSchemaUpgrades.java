@@ -0,0 +1,66 @@
+package com.ark.retailpulse.config;
+
+import com.ark.retailpulse.model.Order;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Schema changes that {@code ddl-auto=update} cannot make on an existing PostgreSQL database,
+ * applied once at startup. Other databases get their schema created from the entities and
+ * are left alone.
+ */
+@Component
+public class PostgresSchemaUpgrades {
+
+    private static final Logger logger = LoggerFactory.getLogger(PostgresSchemaUpgrades.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public PostgresSchemaUpgrades(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void upgrade() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(database)) {
+            logger.debug("Skipping PostgreSQL schema upgrades on {}", database);
+            return;
+        }
+        widenOrderStatusConstraint();
+    }
+
+    /**
+     * Databases created before orders could be PENDING carry a status check constraint that
+     * rejects it, and schema updates never alter existing constraints; widen it once.
+     */
+    private void widenOrderStatusConstraint() {
+        List<String> definitions = jdbcTemplate.queryForList(
+                "SELECT pg_get_constraintdef(oid) FROM pg_constraint WHERE conname = 'orders_status_check'", String.class);
+        if (definitions.isEmpty() || definitions.get(0).contains(Order.OrderStatus.PENDING.name())) {
+            return;
+        }
+        String statuses = Arrays.stream(Order.OrderStatus.values())
+                .map(status -> "'" + status.name() + "'")
+                .collect(Collectors.joining(", "));
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.execute("ALTER TABLE orders DROP CONSTRAINT orders_status_check");
+            jdbcTemplate.execute("ALTER TABLE orders ADD CONSTRAINT orders_status_check CHECK (status IN (" + statuses + "))");
+        });
+        logger.info("Widened orders_status_check to allow {}", statuses);
+    }
+}
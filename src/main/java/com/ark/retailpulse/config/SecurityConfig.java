@@ -85,6 +85,8 @@ public class SecurityConfig {
                                 "/api/verify-payment"
                         ).permitAll() // Publicly accessible endpoints
                         .requestMatchers("/api/user/resend-otp").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // Cache and job metrics
                         .requestMatchers("/api/users/**", "/api/cart/**", "/api/products/**", "/api/orders/**", "/api/payment/**")
                         .hasAnyRole("USER", "ADMIN") // Role-based access for specific endpoints
                         .anyRequest().authenticated() // All other endpoints require authentication
@@ -0,0 +1,66 @@
+package com.ark.retailpulse.controller.image;
+
+import com.ark.retailpulse.helper.image.FileResponseHelper;
+import com.ark.retailpulse.service.product.ImageStorageService;
+import com.ark.retailpulse.service.product.ImageVariantService;
+import com.ark.retailpulse.service.product.ImageVariantService.ImageVariant;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Serves product images from the image storage directory.
+ * Content-addressed images are cached by clients for a year; all images support
+ * ETag revalidation and byte ranges and are sent without copying through the heap.
+ * A {@code w} parameter serves a resized variant instead of the original; until the variant
+ * has been generated the original is sent with revalidation required, so clients pick up the
+ * variant on their next request.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/images")
+public class ImageController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageController.class);
+
+    private final ImageStorageService imageStorageService;
+    private final ImageVariantService imageVariantService;
+    private final FileResponseHelper fileResponseHelper;
+
+    /**
+     * Streams a stored image, or a resized variant of it.
+     *
+     * @param name     the stored file name
+     * @param w        the requested width in pixels (optional), rounded up to the nearest variant size
+     * @param request  the HTTP request
+     * @param response the HTTP response
+     * @throws IOException if the image cannot be sent
+     */
+    @RequestMapping(value = "/{name}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void getImage(@PathVariable String name,
+                         @RequestParam(required = false) Integer w,
+                         HttpServletRequest request,
+                         HttpServletResponse response) throws IOException {
+        logger.debug("Serving image {} with width {}", name, w);
+        Path original = imageStorageService.resolve(name);
+        boolean immutable = imageStorageService.isContentAddressed(name);
+
+        ImageVariant variant = w == null ? new ImageVariant(original, 0, false) : imageVariantService.variant(name, original, w);
+        String etag = imageStorageService.etag(name, original);
+        if (variant.width() > 0) {
+            // Variants of an unchanged original are themselves unchanged
+            etag = etag.substring(0, etag.length() - 1) + "-w" + variant.width() + "\"";
+        }
+        fileResponseHelper.send(variant.path(), etag, immutable && !variant.provisional(), request, response);
+    }
+}
@@ -1,8 +1,11 @@
 package com.ark.retailpulse.controller.order;
 
+import com.ark.retailpulse.dto.cart.CartBatchDTO;
+import com.ark.retailpulse.dto.cart.CartSummaryDTO;
 import com.ark.retailpulse.model.User;
 import com.ark.retailpulse.response.CartDtoDetails.CartDtoDetails;
 import com.ark.retailpulse.service.cart.CartService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
@@ -42,6 +45,23 @@ public class CartController {
         return ResponseEntity.ok(cart); // Return the updated cart
     }
 
+    /**
+     * Applies several add, set-quantity and remove operations to the user's cart in one request.
+     * All operations succeed or fail together, e.g. when restoring a saved cart or reordering.
+     * @param userDetails the authenticated user
+     * @param batch the operations to apply, in order
+     * @return the updated cart details
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<CartDtoDetails> applyOperations(@AuthenticationPrincipal UserDetails userDetails,
+                                                          @Valid @RequestBody CartBatchDTO batch) {
+        Long userId = ((User) userDetails).getId(); // Get the user ID from the authenticated user
+        log.info("User with ID: {} is applying {} cart operations", userId, batch.getOperations().size()); // Log the action
+
+        CartDtoDetails cart = cartService.applyOperations(userId, batch.getOperations()); // Apply all operations at once
+        return ResponseEntity.ok(cart); // Return the updated cart
+    }
+
     /**
      * Retrieves the user's cart.
      * @param userDetails the authenticated user
@@ -56,6 +76,17 @@ public class CartController {
         return ResponseEntity.ok(cart); // Return the cart details
     }
 
+    /**
+     * Retrieves the item count and subtotal of the user's cart, e.g. for a cart badge.
+     * @param userDetails the authenticated user
+     * @return the cart totals
+     */
+    @GetMapping("/summary")
+    public ResponseEntity<CartSummaryDTO> getSummary(@AuthenticationPrincipal UserDetails userDetails) {
+        Long userId = ((User) userDetails).getId(); // Get the user ID from the authenticated user
+        return ResponseEntity.ok(cartService.getSummary(userId)); // Return the stored totals
+    }
+
     /**
      * Clears the user's cart.
      * @param userDetails the authenticated user
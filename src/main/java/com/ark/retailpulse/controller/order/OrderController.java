@@ -1,20 +1,30 @@
 package com.ark.retailpulse.controller.order;
 
+import com.ark.retailpulse.dto.CursorPage;
 import com.ark.retailpulse.dto.order.OrderDTO;
+import com.ark.retailpulse.exception.InvalidPageRequestException;
 import com.ark.retailpulse.model.Order;
 import com.ark.retailpulse.model.User;
+import com.ark.retailpulse.service.order.OrderFilter;
+import com.ark.retailpulse.service.order.OrderReportService;
 import com.ark.retailpulse.service.order.OrderService;
 import com.razorpay.RazorpayException;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -26,7 +36,9 @@ import java.util.List;
 public class OrderController {
 
     private static final Logger logger = LoggerFactory.getLogger(OrderController.class);
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
     private final OrderService orderService;
+    private final OrderReportService orderReportService;
 
     /**
      * Creates a new order for the authenticated user.
@@ -34,22 +46,26 @@ public class OrderController {
      * @param userDetails The details of the authenticated user.
      * @param address     The delivery address for the order.
      * @param phoneNumber The contact number for the order.
+     * @param idempotencyKey Optional key; retries with the same key return the first order instead of placing another.
      * @return The created order details.
      * @throws RazorpayException If an error occurs during payment initiation.
      */
     @PostMapping
     public ResponseEntity<OrderDTO> createOrder(@AuthenticationPrincipal UserDetails userDetails,
                                                 @RequestParam String address,
-                                                @RequestParam String phoneNumber) throws RazorpayException {
+                                                @RequestParam String phoneNumber,
+                                                @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) throws RazorpayException {
         Long userId = ((User) userDetails).getId();
         logger.info("Creating order for userId: {}, address: {}, phoneNumber: {}", userId, address, phoneNumber);
-        OrderDTO orderDTO = orderService.createOrder(userId, address, phoneNumber);
+        OrderDTO orderDTO = orderService.createOrder(userId, address, phoneNumber, idempotencyKey);
         logger.info("Order created successfully for userId: {}", userId);
         return ResponseEntity.ok(orderDTO);
     }
 
     /**
-     * Retrieves all orders (accessible by admin users).
+     * Retrieves all orders, oldest first (accessible by admin users).
+     * Orders and their items are read with a single query; large listings should use
+     * the cursor mode or the export instead.
      *
      * @return A list of all orders.
      */
@@ -57,11 +73,72 @@ public class OrderController {
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<OrderDTO>> getAllOrders() {
         logger.info("Fetching all orders");
-        List<OrderDTO> orders = orderService.getAllOrders();
+        List<OrderDTO> orders = orderReportService.listAllOrders(new OrderFilter(null, null, null));
         logger.info("Total orders retrieved: {}", orders.size());
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Lists orders newest first with keyset (cursor) pagination (accessible by admin users).
+     * Selected instead of the full listing whenever a {@code cursor} parameter is present;
+     * pass an empty cursor for the first slice and the returned {@code nextCursor} afterwards.
+     *
+     * @param cursor The cursor from the previous slice, or empty for the first slice.
+     * @param size   The maximum number of orders to return (capped at 100).
+     * @param status Only orders in this status, if given.
+     * @param from   Only orders created at or after this time, if given.
+     * @param to     Only orders created before this time, if given.
+     * @return A slice of orders and the cursor to continue from.
+     */
+    @GetMapping(params = "cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CursorPage<OrderDTO>> getOrdersByCursor(@RequestParam String cursor,
+                                                                  @RequestParam(defaultValue = "50") int size,
+                                                                  @RequestParam(required = false) Order.OrderStatus status,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        logger.info("Fetching orders: status = {}, from = {}, to = {}, page size = {}", status, from, to, size);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        CursorPage<OrderDTO> orders = orderReportService.listOrders(new OrderFilter(status, from, to), cursor, pageSize);
+        logger.info("Orders retrieved: {}", orders.getItems().size());
+        return ResponseEntity.ok(orders);
+    }
+
+    /**
+     * Streams all matching orders as NDJSON or CSV (accessible by admin users).
+     * Rows are written as they are read, so the export size is not bounded by memory.
+     *
+     * @param format {@code ndjson} (one order per line) or {@code csv} (one line per item).
+     * @param status Only orders in this status, if given.
+     * @param from   Only orders created at or after this time, if given.
+     * @param to     Only orders created before this time, if given.
+     * @return The export as a streamed attachment.
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportOrders(@RequestParam(defaultValue = "ndjson") String format,
+                                                              @RequestParam(required = false) Order.OrderStatus status,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to) {
+        OrderFilter filter = new OrderFilter(status, from, to);
+        logger.info("Exporting orders as {}: status = {}, from = {}, to = {}", format, status, from, to);
+        StreamingResponseBody body;
+        MediaType mediaType;
+        if ("csv".equalsIgnoreCase(format)) {
+            body = output -> orderReportService.exportCsv(filter, output);
+            mediaType = new MediaType("text", "csv", StandardCharsets.UTF_8);
+        } else if ("ndjson".equalsIgnoreCase(format)) {
+            body = output -> orderReportService.exportNdjson(filter, output);
+            mediaType = MediaType.APPLICATION_NDJSON;
+        } else {
+            throw new InvalidPageRequestException("Unsupported export format: " + format);
+        }
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"orders." + format.toLowerCase() + "\"")
+                .body(body);
+    }
+
     /**
      * Retrieves orders specific to the authenticated user.
      *
@@ -77,6 +154,26 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    /**
+     * Retrieves the authenticated user's orders with keyset (cursor) pagination, newest first.
+     * Selected whenever a {@code cursor} parameter is present; pass an empty cursor for the
+     * first slice and the returned {@code nextCursor} afterwards.
+     *
+     * @param userDetails The details of the authenticated user.
+     * @param cursor      The cursor from the previous slice, or empty for the first slice.
+     * @param size        The maximum number of orders to return (capped at 100).
+     * @return A slice of the user's orders and the cursor to continue from.
+     */
+    @GetMapping(value = "/user", params = "cursor")
+    public ResponseEntity<CursorPage<OrderDTO>> getUserOrdersByCursor(@AuthenticationPrincipal UserDetails userDetails,
+                                                                      @RequestParam String cursor,
+                                                                      @RequestParam(defaultValue = "20") int size) {
+        Long userId = ((User) userDetails).getId();
+        logger.info("Fetching orders for userId: {} with keyset pagination: page size = {}", userId, size);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        return ResponseEntity.ok(orderService.getUserOrders(userId, cursor, pageSize));
+    }
+
     /**
      * Updates the status of an order (accessible by admin users).
      *
@@ -1,5 +1,6 @@
 package com.ark.retailpulse.controller.product;
 
+import com.ark.retailpulse.dto.CursorPage;
 import com.ark.retailpulse.dto.product.CommentDTO;
 import com.ark.retailpulse.model.User;
 import com.ark.retailpulse.service.product.CommentService;
@@ -23,6 +24,8 @@ public class CommentController {
     private static final Logger logger = LoggerFactory.getLogger(CommentController.class);
     private final CommentService commentService;
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
     /**
      * Adds a comment to a specific product.
      *
@@ -54,6 +57,25 @@ public class CommentController {
         return ResponseEntity.ok(comments);
     }
 
+    /**
+     * Retrieves comments for a specific product with keyset (cursor) pagination, newest first.
+     * Selected whenever a {@code cursor} parameter is present; pass an empty cursor for the
+     * first slice and the returned {@code nextCursor} afterwards.
+     *
+     * @param productId ID of the product
+     * @param cursor    the cursor from the previous slice, or empty for the first slice
+     * @param size      the maximum number of comments to return (capped at 100)
+     * @return ResponseEntity containing a slice of comments and the cursor to continue from
+     */
+    @GetMapping(value = "/product/{productId}", params = "cursor")
+    public ResponseEntity<CursorPage<CommentDTO>> getCommentsByProductCursor(@PathVariable Long productId,
+                                                                           @RequestParam String cursor,
+                                                                           @RequestParam(defaultValue = "20") int size){
+        logger.info("Fetching comments for productId: {} with keyset pagination: page size = {}", productId, size);
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        return ResponseEntity.ok(commentService.getCommentsByProduct(productId, cursor, pageSize));
+    }
+
 }
 
 
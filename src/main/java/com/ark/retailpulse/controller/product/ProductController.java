@@ -1,8 +1,15 @@
 package com.ark.retailpulse.controller.product;
 
+import com.ark.retailpulse.dto.ApiResponse;
+import com.ark.retailpulse.dto.CursorPage;
 import com.ark.retailpulse.dto.product.ProductDTO;
+import com.ark.retailpulse.dto.product.ProductImportReport;
 import com.ark.retailpulse.dto.product.ProductListDTO;
+import com.ark.retailpulse.repository.ProductSortKey;
+import com.ark.retailpulse.service.product.ProductImportService;
+import com.ark.retailpulse.service.product.ProductPageCache;
 import com.ark.retailpulse.service.product.ProductService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
@@ -10,11 +17,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -27,6 +36,9 @@ public class ProductController {
 
     // Service layer dependency for handling product-related operations
     private final ProductService productService;
+    private final ProductImportService productImportService;
+
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
 
     /**
      * Endpoint to create a new product. Only accessible to users with ADMIN role.
@@ -82,26 +94,133 @@ public class ProductController {
     /**
      * Endpoint to fetch the details of a specific product by its ID.
      * Requires the user to be authenticated.
+     * Answers 304 Not Modified when {@code If-None-Match} holds the current ETag,
+     * without loading or serializing the product. A cached copy older than the current
+     * ETag is reloaded first.
      *
      * @param id the ID of the product to fetch
-     * @return the product details
+     * @param request the current request, used for conditional handling
+     * @return the product details, or null when a 304 has been sent
      */
     @GetMapping("/{id}")
-    public ResponseEntity<ProductDTO> getProduct(@PathVariable Long id) {
+    public ResponseEntity<ProductDTO> getProduct(@PathVariable Long id, WebRequest request) {
         logger.info("Fetching product with ID: {}", id);
-        return ResponseEntity.ok(productService.getProduct(id));
+        String etag = productService.getProductETag(id);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        ProductDTO product = productService.getProduct(id, etag);
+        // The ETag of the body actually sent, which may be newer than the one checked
+        return ResponseEntity.ok().eTag(productService.getProductETag(product)).body(product);
     }
 
     /**
      * Endpoint to fetch all products with pagination support.
      * Accessible to all users, whether authenticated or not.
      *
+     * When {@code minRating} is given, only products rated at least that average are returned;
+     * sort by {@code r.average} to order them by rating.
+     *
+     * Answers 304 Not Modified when {@code If-None-Match} holds the current ETag of the page,
+     * checked with one aggregate query before any page is read or encoded.
+     * The body is written as encoded bytes, gzip-encoded when the client accepts it; the first
+     * pages of the unfiltered catalog come pre-encoded from the page cache.
+     *
+     * @param minRating the minimum average rating (optional)
      * @param pageable the pagination details
-     * @return a paginated list of product summaries
+     * @param request the current request, used for conditional handling
+     * @return a paginated list of product summaries, or null when a 304 has been sent
      */
     @GetMapping
-    public ResponseEntity<Page<ProductListDTO>> getAllProducts(@PageableDefault(size = 10) Pageable pageable) {
+    public ResponseEntity<byte[]> getAllProducts(@RequestParam(required = false) Double minRating,
+                                                 @PageableDefault(size = 10) Pageable pageable,
+                                                 WebRequest request) {
         logger.info("Fetching all products with pagination: page size = {}", pageable.getPageSize());
-        return ResponseEntity.ok(productService.getAllProducts(pageable));
+        String etag = productService.getProductsETag(minRating, pageable);
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = acceptEncoding != null && acceptEncoding.contains("gzip");
+        ProductPageCache.EncodedPage encoded = productService.getEncodedProducts(minRating, pageable, etag, gzip);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(encoded.etag())
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(encoded.gzip());
+        }
+        return response.body(encoded.json());
+    }
+
+    /**
+     * Endpoint to fetch products with keyset (cursor) pagination.
+     * Selected instead of offset paging whenever a {@code cursor} parameter is present;
+     * pass an empty cursor for the first slice and the returned {@code nextCursor} afterwards.
+     * No total count is computed, so deep slices cost the same as the first one.
+     *
+     * @param cursor the cursor from the previous slice, or empty for the first slice
+     * @param size the maximum number of products to return (capped at 100)
+     * @param sort the ordering as {@code key[,asc|desc]} where key is id, name, price or rating
+     * @return a slice of product summaries and the cursor to continue from
+     */
+    @GetMapping(params = "cursor")
+    public ResponseEntity<CursorPage<ProductListDTO>> getProductsByCursor(@RequestParam String cursor,
+                                                                          @RequestParam(defaultValue = "10") int size,
+                                                                          @RequestParam(defaultValue = "id,asc") String sort) {
+        logger.info("Fetching products with keyset pagination: page size = {}", size);
+        String[] sortParts = sort.split(",");
+        ProductSortKey sortKey = ProductSortKey.from(sortParts[0]);
+        boolean descending = sortParts.length > 1 && "desc".equalsIgnoreCase(sortParts[1].trim());
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        return ResponseEntity.ok(productService.getProductsAfter(cursor, pageSize, sortKey, descending));
+    }
+
+    /**
+     * Endpoint to search products by name and description.
+     * Results are ranked by relevance and served from the in-memory search index.
+     *
+     * @param q the search text
+     * @param pageable the pagination details (any sort is ignored)
+     * @return a paginated list of matching product summaries
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Page<ProductListDTO>> searchProducts(@RequestParam String q,
+                                                               @PageableDefault(size = 10) Pageable pageable) {
+        logger.info("Searching products: query = {}, page size = {}", q, pageable.getPageSize());
+        return ResponseEntity.ok(productService.searchProducts(q, pageable));
+    }
+
+    /**
+     * Endpoint to rebuild the product search index from scratch. Only accessible to users with ADMIN role.
+     *
+     * @return a response with the number of indexed products
+     */
+    @PostMapping("/search/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> rebuildSearchIndex() {
+        logger.info("Rebuilding product search index");
+        int indexed = productService.rebuildSearchIndex();
+        return ResponseEntity.ok(new ApiResponse("Search index rebuilt with " + indexed + " products", HttpStatus.OK.value()));
+    }
+
+    /**
+     * Endpoint to import products in bulk. Only accessible to users with ADMIN role.
+     * The body is streamed as CSV (with a header row) or NDJSON (one product per line)
+     * and written in JDBC batches; invalid rows are reported and skipped.
+     *
+     * @param request the HTTP request whose body holds the products
+     * @return a report with the number of imported and rejected rows
+     * @throws IOException if the body cannot be read
+     */
+    @PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson", "application/ndjson"})
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ProductImportReport> importProducts(HttpServletRequest request) throws IOException {
+        ProductImportService.Format format = request.getContentType().startsWith("text/csv")
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.NDJSON;
+        logger.info("Importing products from {} body", format);
+        ProductImportReport report = productImportService.importProducts(request.getInputStream(), format);
+        return ResponseEntity.ok(report);
     }
 }
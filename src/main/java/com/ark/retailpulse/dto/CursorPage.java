@@ -0,0 +1,23 @@
+package com.ark.retailpulse.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A slice of results fetched with keyset (seek) pagination.
+ * Unlike a Page it carries no total count; clients follow {@code nextCursor} until
+ * {@code hasNext} is false.
+ *
+ * @param <T> the item type
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor;
+    private boolean hasNext;
+}
@@ -0,0 +1,19 @@
+package com.ark.retailpulse.dto.cart;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * DTO for applying several cart changes in one request, e.g. to restore a saved cart.
+ */
+@Data
+public class CartBatchDTO {
+    @NotEmpty(message = "At least one operation is required")
+    @Size(max = 100, message = "At most 100 operations per request")
+    @Valid
+    private List<CartOperationDTO> operations;
+}
@@ -0,0 +1,36 @@
+package com.ark.retailpulse.dto.cart;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Data;
+
+/**
+ * DTO for a single change in a batch cart update.
+ */
+@Data
+public class CartOperationDTO {
+
+    public enum Type {
+        /** Adds the quantity to the item, creating it if needed. */
+        ADD,
+        /** Sets the quantity of the item; zero removes it. */
+        SET,
+        /** Removes the item. */
+        REMOVE
+    }
+
+    @NotNull(message = "Operation is required")
+    private Type op;
+    @NotNull(message = "Product ID is required")
+    private Long productId;
+    @PositiveOrZero(message = "Cannot be negative")
+    private Integer quantity;
+
+    @JsonIgnore
+    @AssertTrue(message = "Quantity is required for ADD and SET, and must be positive for ADD")
+    public boolean isQuantityValid() {
+        return op == null || op == Type.REMOVE || (quantity != null && (op == Type.SET || quantity > 0));
+    }
+}
@@ -0,0 +1,18 @@
+package com.ark.retailpulse.dto.cart;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * DTO with the cart totals only, e.g. for a cart badge or mini-cart.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CartSummaryDTO {
+    private int itemCount;
+    private BigDecimal subtotal;
+}
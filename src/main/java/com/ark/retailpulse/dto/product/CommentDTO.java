@@ -3,9 +3,13 @@ package com.ark.retailpulse.dto.product;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
+import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
+@AllArgsConstructor
 public class CommentDTO {
     private Long id;
     @NotBlank(message = "Content is required")
@@ -20,5 +20,7 @@ public class ProductDTO {
     @PositiveOrZero(message = "Cannot be negative")
     private Integer quantity;
     private String image;
+    private Long version;
     private List<CommentDTO> comments;
+    private RatingSummaryDTO rating;
 }
\ No newline at end of file
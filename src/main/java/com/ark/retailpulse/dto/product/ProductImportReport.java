@@ -0,0 +1,30 @@
+package com.ark.retailpulse.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import.
+ * Only the first errors are listed; {@code failed} always counts every rejected row.
+ */
+@Data
+@NoArgsConstructor
+public class ProductImportReport {
+    private long processed;
+    private long imported;
+    private long failed;
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        private long line;
+        private String message;
+    }
+}
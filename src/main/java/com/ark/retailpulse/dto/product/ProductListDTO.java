@@ -22,5 +22,13 @@ public class ProductListDTO {
     @PositiveOrZero(message = "quantity must be positive or zero")
     private Integer quantity;
     private String image;
+    /**
+     * Average score of the product, or null if it has not been rated yet.
+     */
+    private Double averageRating;
+    /**
+     * Number of scores the average is based on, or null if it has not been rated yet.
+     */
+    private Long ratingCount;
 
 }
@@ -0,0 +1,23 @@
+package com.ark.retailpulse.dto.product;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Rating aggregate of a product: average score, number of scores and a 1-5 star histogram.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RatingSummaryDTO {
+    private double average;
+    private long count;
+    private Map<Integer, Long> histogram;
+    /**
+     * Version of the product's comments and rating, part of the product details ETag.
+     */
+    private long version;
+}
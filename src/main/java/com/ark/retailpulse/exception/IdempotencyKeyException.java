@@ -0,0 +1,18 @@
+package com.ark.retailpulse.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a request carries an Idempotency-Key that cannot be honoured: the original
+ * request is still running, or the key was used for a different request.
+ */
+@Getter
+public class IdempotencyKeyException extends RuntimeException {
+    private final HttpStatus status;
+
+    public IdempotencyKeyException(HttpStatus status, String message) {
+        super(message);
+        this.status = status;
+    }
+}
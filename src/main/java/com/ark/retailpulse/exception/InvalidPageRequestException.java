@@ -0,0 +1,7 @@
+package com.ark.retailpulse.exception;
+
+public class InvalidPageRequestException extends RuntimeException {
+    public InvalidPageRequestException(String message) {
+        super(message);
+    }
+}
@@ -1,15 +1,20 @@
 package com.ark.retailpulse.helper.order;
 
+import com.ark.retailpulse.exception.InsufficientStockException;
 import com.ark.retailpulse.model.Cart;
+import com.ark.retailpulse.model.CartItem;
 import com.ark.retailpulse.model.Order;
 import com.ark.retailpulse.model.OrderItem;
-import com.ark.retailpulse.model.Product;
 import com.ark.retailpulse.repository.ProductRepository;
-import jakarta.persistence.EntityNotFoundException;
+import com.ark.retailpulse.service.inventory.InventoryEngine;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 /**
@@ -20,21 +25,31 @@ import java.util.stream.Collectors;
 public class OrderItemHelper {
 
     private final ProductRepository productRepository;
+    private final InventoryEngine inventoryEngine;
 
+    /**
+     * Deducts the stock for every cart item through the configured {@link InventoryEngine}
+     * and creates the matching order items. Must run inside the order's transaction so a
+     * short product gives back the stock already taken.
+     *
+     * @throws InsufficientStockException if a product does not have enough stock
+     */
     public List<OrderItem> createOrderItems(Cart cart, Order order) {
-        return cart.getItems().stream().map(cartItem -> {
-            // Fetch the product by ID or throw an exception if not found
-            Product product = productRepository.findById(cartItem.getProduct().getId())
-                    .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + cartItem.getProduct().getId()));
-            // Validate stock availability
-            if (product.getQuantity() == null || product.getQuantity() < cartItem.getQuantity()) {
-                throw new IllegalStateException("Insufficient stock for product: " + product.getName());
+        Map<Long, Integer> quantities = cart.getItems().stream()
+                .collect(Collectors.toMap(cartItem -> cartItem.getProduct().getId(), CartItem::getQuantity, Integer::sum, TreeMap::new));
+
+        inventoryEngine.take(quantities);
+
+        // Price the items in one query
+        Map<Long, BigDecimal> prices = new HashMap<>();
+        productRepository.findStockByIdIn(quantities.keySet())
+                .forEach(product -> prices.put(product.getId(), product.getPrice()));
+        return quantities.entrySet().stream().map(entry -> {
+            BigDecimal price = prices.get(entry.getKey());
+            if (price == null) {
+                throw new IllegalStateException("Product price is not set for product: " + entry.getKey());
             }
-            // Deduct the ordered quantity from the product's stock
-            product.setQuantity(product.getQuantity() - cartItem.getQuantity());
-            productRepository.save(product);
-            // Create and return an OrderItem
-            return new OrderItem(null, order, product, cartItem.getQuantity(), product.getPrice());
+            return new OrderItem(null, order, productRepository.getReferenceById(entry.getKey()), entry.getValue(), price);
         }).collect(Collectors.toList());
     }
 }
@@ -6,6 +6,7 @@ import com.ark.retailpulse.dto.cart.CartItemDTO;
 import com.ark.retailpulse.model.Cart;
 import com.ark.retailpulse.model.CartItem;
 import com.ark.retailpulse.response.CartDtoDetails.CartDtoDetails;
+import com.ark.retailpulse.response.CartDtoDetails.CartItemsDetails;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
@@ -14,13 +15,23 @@ public interface CartMapper {
     @Mapping(target = "userId", source = "user.id")
     CartDTO toDTO(Cart Cart);
     @Mapping(target="user.id", source = "userId")
+    @Mapping(target = "subtotal", ignore = true)
+    @Mapping(target = "itemCount", ignore = true)
+    @Mapping(target = "updatedAt", ignore = true)
     Cart toEntity(CartDTO cartDTO);
     
+    @Mapping(target = "product.rating", ignore = true)
     CartItemDTO toDTO(CartItem cartItem);
 
+    @Mapping(target = "unitPrice", ignore = true)
     CartItem toEntity(CartItemDTO cartItemDTO);
 
     CartDtoDetails toDtoDetails(Cart cart);
 
+    @Mapping(target = "product.rating", ignore = true)
+    @Mapping(target = "priceChanged", ignore = true)
+    CartItemsDetails toItemDetails(CartItem cartItem);
+
+    @Mapping(target = "updatedAt", ignore = true)
     Cart toCart(CartDtoDetails cartDtoDetails);
-}
\ No newline at end of file
+}
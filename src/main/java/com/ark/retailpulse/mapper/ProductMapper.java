@@ -10,9 +10,11 @@ import org.mapstruct.Mapping;
 @Mapper(componentModel = "spring")
 public interface ProductMapper {
     @Mapping(target = "image", source = "image")
+    @Mapping(target = "rating", ignore = true)
     ProductDTO toDTO(Product product);
 
     @Mapping(target = "image", source = "image")
+    @Mapping(target = "version", ignore = true)
     Product toEntity(ProductDTO productDTO);
 
     @Mapping(target = "userId",source = "user.id")
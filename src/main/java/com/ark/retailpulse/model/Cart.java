@@ -4,8 +4,12 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 /**
@@ -15,6 +19,8 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_user", columnNames = "user_id"),
+        indexes = @Index(name = "idx_cart_updated_at", columnList = "updated_at"))
 public class Cart implements Serializable {
 
     @Id
@@ -33,4 +39,22 @@ public class Cart implements Serializable {
      */
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL,orphanRemoval = true)
     private List<CartItem> items = new ArrayList<>();
+    /**
+     * Sum of quantity times snapshot unit price over all items, maintained on every cart change.
+     */
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private BigDecimal subtotal = BigDecimal.ZERO;
+    /**
+     * Total number of units in the cart, maintained on every cart change.
+     */
+    @ColumnDefault("0")
+    private int itemCount;
+    /**
+     * When the cart last changed; carts idle for too long are swept.
+     */
+    @UpdateTimestamp
+    @ColumnDefault("CURRENT_TIMESTAMP")
+    @Column(nullable = false)
+    private LocalDateTime updatedAt;
 }
@@ -6,6 +6,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
 
 /**
  * Represents an item in a shopping cart.
@@ -14,6 +15,7 @@ import java.io.Serializable;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_product", columnNames = {"cart_id", "product_id"}))
 public class CartItem implements Serializable {
         @Id
         @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,7 +30,7 @@ public class CartItem implements Serializable {
         /**
          * The product associated with this cart item.
          */
-        @ManyToOne(fetch=FetchType.EAGER)
+        @ManyToOne(fetch=FetchType.LAZY)
         @JoinColumn(name="product_id", nullable = false)
         private Product product;
 
@@ -36,4 +38,9 @@ public class CartItem implements Serializable {
          * The quantity of the product in the cart.
          */
         private Integer quantity;
+
+        /**
+         * The product price when the item was first added to the cart.
+         */
+        private BigDecimal unitPrice;
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.ark.retailpulse.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock taken from a product by a committed order but not yet applied to the product row.
+ * Written in the order's transaction when inventory is kept in memory, and folded into
+ * the product quantities in batches.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "inventory_journal", indexes = @Index(name = "idx_inventory_journal_product", columnList = "product_id"))
+public class InventoryJournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    /**
+     * The ID of the product; not a foreign key so journal inserts never touch the product row.
+     */
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+    /**
+     * The quantity taken from the product's stock.
+     */
+    private int quantity;
+    private LocalDateTime createdAt;
+}
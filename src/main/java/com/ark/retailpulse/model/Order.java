@@ -17,7 +17,11 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-@Table(name="orders")
+@Table(name="orders", indexes = {
+        @Index(name = "idx_orders_user_id_id", columnList = "user_id, id"),
+        @Index(name = "idx_orders_status_id", columnList = "status, id"),
+        @Index(name = "idx_orders_created_at_id", columnList = "created_at, id")
+})
 public class Order {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -32,8 +36,12 @@ public class Order {
     private String phoneNumber;
     @Enumerated(EnumType.STRING)
     private OrderStatus status;
+    /**
+     * PENDING orders hold their stock while the payment order is being created; they become
+     * PREPARING once it exists, or CANCELED with their stock given back if it cannot be created.
+     */
     public enum OrderStatus {
-        PREPARING, DELIVERING, DELIVERED, CANCELED
+        PENDING, PREPARING, DELIVERING, DELIVERED, CANCELED
     }
     private LocalDateTime createdAt;
     /**
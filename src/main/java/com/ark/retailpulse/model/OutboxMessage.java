@@ -0,0 +1,58 @@
+package com.ark.retailpulse.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A notification to send, written in the same transaction as the change it announces and
+ * delivered later by the outbox dispatcher. Only the ID of the subject is stored; the
+ * content is rendered from the current data when the message is sent.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "outbox_message",
+        uniqueConstraints = @UniqueConstraint(name = "uk_outbox_dedup_key", columnNames = "dedup_key"),
+        indexes = @Index(name = "idx_outbox_due", columnList = "status, next_attempt_at, id"))
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Type type;
+    /**
+     * The ID of the order or OTP record the message is about.
+     */
+    @Column(nullable = false)
+    private Long subjectId;
+    /**
+     * Identifies the notification; enqueueing the same key twice sends it once.
+     */
+    @Column(name = "dedup_key", nullable = false)
+    private String dedupKey;
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status;
+    private int attempts;
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+    @Column(length = 1000)
+    private String lastError;
+
+    public enum Type {
+        ORDER_CONFIRMATION, EMAIL_OTP, SMS_OTP
+    }
+
+    public enum Status {
+        PENDING, SENT, FAILED
+    }
+}
@@ -4,6 +4,7 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.io.Serializable;
 import java.math.BigDecimal;
@@ -16,6 +17,11 @@ import java.util.List;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Table(indexes = {
+        // Keyset pagination seeks on (sort column, id)
+        @Index(name = "idx_product_name_id", columnList = "name, id"),
+        @Index(name = "idx_product_price_id", columnList = "price, id")
+})
 public class Product implements Serializable {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,6 +31,13 @@ public class Product implements Serializable {
     private BigDecimal price;
     private Integer quantity;
     private String image; //add image
+    /**
+     * Incremented on every change to the product or to data shown with it, such as its rating.
+     * Used for optimistic locking and as the validator of HTTP ETags.
+     */
+    @Version
+    @ColumnDefault("0")
+    private long version;
     /**
      * List of comments associated with the product.
      */
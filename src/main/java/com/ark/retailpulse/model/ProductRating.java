@@ -0,0 +1,42 @@
+package com.ark.retailpulse.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Materialized rating aggregate of a product, maintained as comments are added.
+ * Kept in its own table so rating updates do not contend with stock updates on the product row.
+ * A product whose comments carry no score has a row with a zero count, which counts as unrated.
+ */
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(indexes = @Index(name = "idx_product_rating_average", columnList = "average, product_id"))
+public class ProductRating {
+    /**
+     * The ID of the rated product.
+     */
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+    private long ratingCount;
+    private long ratingSum;
+    private double average;
+    /**
+     * Histogram of scores, one counter per star.
+     */
+    private long oneStar;
+    private long twoStar;
+    private long threeStar;
+    private long fourStar;
+    private long fiveStar;
+    /**
+     * Bumped on every comment of the product and on every recompute that changes the aggregate,
+     * so it versions the comments and rating shown in the product details.
+     */
+    @Column(columnDefinition = "bigint default 0 not null")
+    private long version;
+}
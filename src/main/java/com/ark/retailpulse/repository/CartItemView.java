@@ -0,0 +1,35 @@
+package com.ark.retailpulse.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * One row of a cart read: the cart, one of its items and the item's product.
+ * The item and product columns are null for an empty cart.
+ */
+public interface CartItemView {
+    Long getCartId();
+
+    BigDecimal getSubtotal();
+
+    Integer getItemCount();
+
+    Long getItemId();
+
+    Integer getQuantity();
+
+    BigDecimal getUnitPrice();
+
+    Long getProductId();
+
+    String getName();
+
+    String getDescription();
+
+    BigDecimal getPrice();
+
+    Integer getStock();
+
+    String getImage();
+
+    Long getVersion();
+}
@@ -1,9 +1,13 @@
 package com.ark.retailpulse.repository;
 
+import com.ark.retailpulse.dto.cart.CartSummaryDTO;
 import com.ark.retailpulse.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 
@@ -11,4 +15,17 @@ import java.util.Optional;
 public interface CartRepository extends JpaRepository<Cart, Long> {
 
     Optional<Cart> findByUserId(Long userId);
+
+    /**
+     * Reads the user's cart with its items and their products in one query, selecting only
+     * the columns shown in the cart. Returns no rows if the user has no cart.
+     */
+    @Query("SELECT c.id AS cartId, c.subtotal AS subtotal, c.itemCount AS itemCount, " +
+            "i.id AS itemId, i.quantity AS quantity, i.unitPrice AS unitPrice, p.id AS productId, p.name AS name, " +
+            "p.description AS description, p.price AS price, p.quantity AS stock, p.image AS image, p.version AS version " +
+            "FROM Cart c LEFT JOIN c.items i LEFT JOIN i.product p WHERE c.user.id = :userId ORDER BY i.id")
+    List<CartItemView> findItemViewsByUserId(@Param("userId") Long userId);
+
+    @Query("SELECT new com.ark.retailpulse.dto.cart.CartSummaryDTO(c.itemCount, c.subtotal) FROM Cart c WHERE c.user.id = :userId")
+    Optional<CartSummaryDTO> findSummaryByUserId(@Param("userId") Long userId);
 }
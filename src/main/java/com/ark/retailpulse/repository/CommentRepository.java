@@ -1,7 +1,11 @@
 package com.ark.retailpulse.repository;
 
+import com.ark.retailpulse.dto.product.CommentDTO;
 import com.ark.retailpulse.model.Comment;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,4 +13,21 @@ import java.util.List;
 @Repository
 public interface CommentRepository extends JpaRepository<Comment,Long> {
     List<Comment> findByProductId(Long productID);
+
+    @Query("SELECT new com.ark.retailpulse.dto.product.CommentDTO(c.id, c.content, c.score, c.user.id) FROM Comment c WHERE c.product.id = :productId")
+    List<CommentDTO> findDTOsByProductId(@Param("productId") Long productId);
+
+    /**
+     * Newest comments of a product, read from the (product_id, id) index without touching products or users.
+     */
+    @Query("SELECT new com.ark.retailpulse.dto.product.CommentDTO(c.id, c.content, c.score, c.user.id) FROM Comment c " +
+            "WHERE c.product.id = :productId ORDER BY c.id DESC")
+    List<CommentDTO> findFirstPageByProductId(@Param("productId") Long productId, Pageable pageable);
+
+    /**
+     * Comments of a product older than the given comment, newest first.
+     */
+    @Query("SELECT new com.ark.retailpulse.dto.product.CommentDTO(c.id, c.content, c.score, c.user.id) FROM Comment c " +
+            "WHERE c.product.id = :productId AND c.id < :afterId ORDER BY c.id DESC")
+    List<CommentDTO> findPageByProductIdAfter(@Param("productId") Long productId, @Param("afterId") Long afterId, Pageable pageable);
 }
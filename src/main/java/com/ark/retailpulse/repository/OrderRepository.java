@@ -1,12 +1,70 @@
 package com.ark.retailpulse.repository;
 
 import com.ark.retailpulse.model.Order;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order,Long> {
 
+    /**
+     * All orders of a user with their items and products, in a single query.
+     * The user's cart is joined too: as the inverse side of a one-to-one it would otherwise
+     * be loaded eagerly by a query of its own.
+     */
+    @EntityGraph(attributePaths = {"user", "user.cart", "items", "items.product"})
     List<Order> findByUserId(Long userId);
+
+    /**
+     * IDs of a user's newest orders, read from the (user_id, id) index.
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId ORDER BY o.id DESC")
+    List<Long> findFirstPageIdsByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * IDs of a user's orders older than the given order, newest first.
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.user.id = :userId AND o.id < :afterId ORDER BY o.id DESC")
+    List<Long> findPageIdsByUserIdAfter(@Param("userId") Long userId, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * The given orders with their items and products, newest first, in a single query.
+     * Paging happens on the IDs beforehand, as a fetch-joined collection cannot be limited in SQL.
+     */
+    @EntityGraph(attributePaths = {"user", "user.cart", "items", "items.product"})
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids ORDER BY o.id DESC")
+    List<Order> findWithItemsByIdIn(@Param("ids") List<Long> ids);
     Order findByRazorpayOrderId(String razorpayOrderId);
+
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.createdAt < :before")
+    List<Long> findIdsByStatusAndCreatedAtBefore(@Param("status") Order.OrderStatus status,
+                                                 @Param("before") LocalDateTime before);
+
+    /**
+     * Moves a PENDING order to CANCELED. The status check happens in the update itself, so of
+     * any number of concurrent callers exactly one sees 1.
+     *
+     * @return 1 if the order was cancelled, 0 if it was no longer pending
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = com.ark.retailpulse.model.Order.OrderStatus.CANCELED " +
+            "WHERE o.id = :id AND o.status = com.ark.retailpulse.model.Order.OrderStatus.PENDING")
+    int cancelIfPending(@Param("id") Long id);
+
+    /**
+     * Moves a PENDING order to PREPARING and attaches its payment order.
+     *
+     * @return 1 if the order was confirmed, 0 if it was no longer pending
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = com.ark.retailpulse.model.Order.OrderStatus.PREPARING, " +
+            "o.razorpayOrderId = :razorpayOrderId " +
+            "WHERE o.id = :id AND o.status = com.ark.retailpulse.model.Order.OrderStatus.PENDING")
+    int confirmIfPending(@Param("id") Long id, @Param("razorpayOrderId") String razorpayOrderId);
 }
@@ -0,0 +1,24 @@
+package com.ark.retailpulse.repository;
+
+import com.ark.retailpulse.model.OutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    /**
+     * Adds a pending message unless one with the same dedup key exists.
+     *
+     * @return 1 if the message was added, 0 if it is a duplicate
+     */
+    @Modifying
+    @Query(value = "INSERT INTO outbox_message (type, subject_id, dedup_key, status, attempts, next_attempt_at, created_at) " +
+            "VALUES (:type, :subjectId, :dedupKey, 'PENDING', 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (dedup_key) DO NOTHING",
+            nativeQuery = true)
+    int enqueue(@Param("type") String type, @Param("subjectId") Long subjectId, @Param("dedupKey") String dedupKey);
+}
@@ -0,0 +1,13 @@
+package com.ark.retailpulse.repository;
+
+/**
+ * Aggregates that change whenever a listing could: a product added, removed, updated or rated.
+ * Read with one aggregate query, without loading any product.
+ */
+public interface ProductListingFingerprint {
+    Long getCount();
+
+    Long getIdSum();
+
+    Long getVersionSum();
+}
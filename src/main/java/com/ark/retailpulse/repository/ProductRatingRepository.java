@@ -0,0 +1,44 @@
+package com.ark.retailpulse.repository;
+
+import com.ark.retailpulse.model.ProductRating;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductRatingRepository extends JpaRepository<ProductRating, Long> {
+
+    /**
+     * Adds one score to the product's aggregate in a single statement, creating it if needed,
+     * and bumps its version.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_rating (product_id, rating_count, rating_sum, average, one_star, two_star, three_star, four_star, five_star, version) " +
+            "VALUES (:productId, 1, :score, :score, " +
+            "CASE WHEN :score = 1 THEN 1 ELSE 0 END, CASE WHEN :score = 2 THEN 1 ELSE 0 END, CASE WHEN :score = 3 THEN 1 ELSE 0 END, " +
+            "CASE WHEN :score = 4 THEN 1 ELSE 0 END, CASE WHEN :score = 5 THEN 1 ELSE 0 END, 1) " +
+            "ON CONFLICT (product_id) DO UPDATE SET " +
+            "version = product_rating.version + 1, " +
+            "rating_count = product_rating.rating_count + 1, " +
+            "rating_sum = product_rating.rating_sum + EXCLUDED.rating_sum, " +
+            "average = CAST(product_rating.rating_sum + EXCLUDED.rating_sum AS double precision) / (product_rating.rating_count + 1), " +
+            "one_star = product_rating.one_star + EXCLUDED.one_star, " +
+            "two_star = product_rating.two_star + EXCLUDED.two_star, " +
+            "three_star = product_rating.three_star + EXCLUDED.three_star, " +
+            "four_star = product_rating.four_star + EXCLUDED.four_star, " +
+            "five_star = product_rating.five_star + EXCLUDED.five_star",
+            nativeQuery = true)
+    void addScore(@Param("productId") Long productId, @Param("score") int score);
+
+    /**
+     * Bumps the version of the product's aggregate without changing it, creating an unrated one if needed.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO product_rating (product_id, rating_count, rating_sum, average, one_star, two_star, three_star, four_star, five_star, version) " +
+            "VALUES (:productId, 0, 0, 0, 0, 0, 0, 0, 0, 1) " +
+            "ON CONFLICT (product_id) DO UPDATE SET version = product_rating.version + 1",
+            nativeQuery = true)
+    void touch(@Param("productId") Long productId);
+}
@@ -5,12 +5,65 @@ import com.ark.retailpulse.model.Product;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface ProductRepository extends JpaRepository<Product,Long> {
+public interface ProductRepository extends JpaRepository<Product,Long>, ProductRepositoryCustom {
 
-            @Query("SELECT new com.ark.retailpulse.dto.product.ProductListDTO(p.id, p.name,p.description,p.price,p.quantity,p.image)FROM Product p")
+            @Query(value = "SELECT new com.ark.retailpulse.dto.product.ProductListDTO(p.id, p.name,p.description,p.price,p.quantity,p.image,r.average,r.ratingCount)" +
+                    "FROM Product p LEFT JOIN ProductRating r ON r.productId = p.id AND r.ratingCount > 0",
+                    countQuery = "SELECT count(p) FROM Product p")
             Page<ProductListDTO> findAllWithoutComments(Pageable pageable);
+
+            @Query(value = "SELECT new com.ark.retailpulse.dto.product.ProductListDTO(p.id, p.name,p.description,p.price,p.quantity,p.image,r.average,r.ratingCount)" +
+                    "FROM Product p JOIN ProductRating r ON r.productId = p.id WHERE r.average >= :minRating AND r.ratingCount > 0",
+                    countQuery = "SELECT count(r) FROM ProductRating r WHERE r.average >= :minRating AND r.ratingCount > 0")
+            Page<ProductListDTO> findAllWithMinRating(@Param("minRating") double minRating, Pageable pageable);
+
+            @Query("SELECT count(p) AS count, coalesce(sum(p.id), 0L) AS idSum, coalesce(sum(p.version), 0L) + coalesce(sum(r.version), 0L) AS versionSum " +
+                    "FROM Product p LEFT JOIN ProductRating r ON r.productId = p.id")
+            ProductListingFingerprint findListingFingerprint();
+
+            @Query("SELECT count(p) AS count, coalesce(sum(p.id), 0L) AS idSum, coalesce(sum(p.version), 0L) + coalesce(sum(r.version), 0L) AS versionSum " +
+                    "FROM Product p JOIN ProductRating r ON r.productId = p.id WHERE r.average >= :minRating AND r.ratingCount > 0")
+            ProductListingFingerprint findListingFingerprintWithMinRating(@Param("minRating") double minRating);
+
+            @Query("SELECT new com.ark.retailpulse.dto.product.ProductListDTO(p.id, p.name,p.description,p.price,p.quantity,p.image,r.average,r.ratingCount)" +
+                    "FROM Product p LEFT JOIN ProductRating r ON r.productId = p.id AND r.ratingCount > 0 WHERE p.id = :id")
+            Optional<ProductListDTO> findListingById(@Param("id") Long id);
+
+            @Query("SELECT p.id AS id, p.price AS price, p.quantity AS quantity FROM Product p WHERE p.id = :id")
+            Optional<ProductStockView> findStockById(@Param("id") Long id);
+
+            @Query("SELECT p.id AS id, p.price AS price, p.quantity AS quantity FROM Product p WHERE p.id IN :ids")
+            List<ProductStockView> findStockByIdIn(@Param("ids") Collection<Long> ids);
+
+            @Query("SELECT p.version AS productVersion, coalesce(r.version, 0L) AS ratingVersion " +
+                    "FROM Product p LEFT JOIN ProductRating r ON r.productId = p.id WHERE p.id = :id")
+            Optional<ProductVersionView> findVersionById(@Param("id") Long id);
+
+            /**
+             * Takes the quantity from the product's stock if, and only if, enough is left.
+             * The check and the decrement happen in one statement under the row lock.
+             *
+             * @return 1 if the stock was decremented, 0 if the product is missing or short
+             */
+            @Modifying
+            @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity, p.version = p.version + 1 " +
+                    "WHERE p.id = :id AND p.quantity >= :quantity")
+            int decrementStock(@Param("id") Long id, @Param("quantity") int quantity);
+
+            /**
+             * Returns quantity to the product's stock.
+             */
+            @Modifying
+            @Query("UPDATE Product p SET p.quantity = p.quantity + :quantity, p.version = p.version + 1 WHERE p.id = :id")
+            int incrementStock(@Param("id") Long id, @Param("quantity") int quantity);
 }
@@ -0,0 +1,24 @@
+package com.ark.retailpulse.repository;
+
+import com.ark.retailpulse.dto.product.ProductListDTO;
+
+import java.util.List;
+
+/**
+ * Custom product queries that cannot be expressed as derived or annotated queries.
+ */
+public interface ProductRepositoryCustom {
+
+    /**
+     * Fetches the product listing positioned after the given keyset, without a count query.
+     *
+     * @param sortKey    the column to order by (ID is always used as tie-breaker)
+     * @param descending whether to order descending
+     * @param afterValue the sort column value of the last row already returned, or null for the first slice
+     * @param afterId    the ID of the last row already returned, or null for the first slice
+     * @param limit      the maximum number of rows to return
+     * @return the next rows of the listing
+     */
+    List<ProductListDTO> findListingAfter(ProductSortKey sortKey, boolean descending,
+                                          Object afterValue, Long afterId, int limit);
+}
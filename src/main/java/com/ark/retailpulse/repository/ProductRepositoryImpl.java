@@ -0,0 +1,58 @@
+package com.ark.retailpulse.repository;
+
+import com.ark.retailpulse.dto.product.ProductListDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+
+/**
+ * Keyset pagination for the product listing.
+ * Seeking on {@code (sort column, id)} lets the database start from an index position
+ * instead of scanning and discarding OFFSET rows, so every slice costs the same.
+ */
+public class ProductRepositoryImpl implements ProductRepositoryCustom {
+
+    private static final String SELECT_LISTING =
+            "SELECT new com.ark.retailpulse.dto.product.ProductListDTO(p.id, p.name,p.description,p.price,p.quantity,p.image,r.average,r.ratingCount)" +
+            " FROM Product p LEFT JOIN ProductRating r ON r.productId = p.id AND r.ratingCount > 0";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductListDTO> findListingAfter(ProductSortKey sortKey, boolean descending,
+                                                 Object afterValue, Long afterId, int limit) {
+        String column = sortKey.getPath();
+        String cmp = descending ? "<" : ">";
+        String dir = descending ? " DESC" : " ASC";
+
+        StringBuilder jpql = new StringBuilder(SELECT_LISTING);
+        if (column == null) {
+            if (afterId != null) {
+                jpql.append(" WHERE p.id ").append(cmp).append(" :afterId");
+            }
+            jpql.append(" ORDER BY p.id").append(dir);
+        } else {
+            // Rows without a value for the sort column have no keyset position
+            jpql.append(" WHERE ").append(column).append(" IS NOT NULL");
+            if (afterId != null) {
+                // The leading bound alone is index-seekable; the OR only filters ties within it
+                jpql.append(" AND ").append(column).append(' ').append(cmp).append("= :afterValue");
+                jpql.append(" AND (").append(column).append(' ').append(cmp).append(" :afterValue")
+                        .append(" OR (").append(column).append(" = :afterValue AND p.id ").append(cmp).append(" :afterId))");
+            }
+            jpql.append(" ORDER BY ").append(column).append(dir).append(", p.id").append(dir);
+        }
+
+        TypedQuery<ProductListDTO> query = entityManager.createQuery(jpql.toString(), ProductListDTO.class);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+            if (column != null) {
+                query.setParameter("afterValue", afterValue);
+            }
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.ark.retailpulse.repository;
+
+import com.ark.retailpulse.exception.InvalidPageRequestException;
+
+import java.math.BigDecimal;
+
+/**
+ * Columns the product listing can be keyset-paginated on.
+ * Each key is combined with the product ID as a tie-breaker so the seek position is unique.
+ */
+public enum ProductSortKey {
+    ID(null),
+    NAME("p.name"),
+    PRICE("p.price"),
+    /**
+     * Average rating; products that have not been rated yet are not part of this ordering.
+     */
+    RATING("r.average");
+
+    private final String path;
+
+    ProductSortKey(String path) {
+        this.path = path;
+    }
+
+    /**
+     * @return the JPQL path of the sort column, or null when sorting by ID alone
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Converts a cursor value back to the type of the sort column.
+     *
+     * @param value the value as stored in the cursor
+     * @return the typed value
+     */
+    public Object parse(String value) {
+        try {
+            return switch (this) {
+                case ID -> null;
+                case NAME -> value;
+                case PRICE -> new BigDecimal(value);
+                case RATING -> Double.valueOf(value);
+            };
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Malformed pagination cursor");
+        }
+    }
+
+    public static ProductSortKey from(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Unsupported sort key: " + name);
+        }
+    }
+}
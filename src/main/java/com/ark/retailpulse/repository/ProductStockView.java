@@ -0,0 +1,14 @@
+package com.ark.retailpulse.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Price and stock of a product, read without loading the entity.
+ */
+public interface ProductStockView {
+    Long getId();
+
+    BigDecimal getPrice();
+
+    Integer getQuantity();
+}
@@ -0,0 +1,10 @@
+package com.ark.retailpulse.repository;
+
+/**
+ * Versions of a product row and of its comments and rating, read without loading either.
+ */
+public interface ProductVersionView {
+    Long getProductVersion();
+
+    Long getRatingVersion();
+}
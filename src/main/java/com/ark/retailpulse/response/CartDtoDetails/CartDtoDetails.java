@@ -2,6 +2,7 @@ package com.ark.retailpulse.response.CartDtoDetails;
 
 import lombok.Data;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @Data
@@ -9,4 +10,6 @@ public class CartDtoDetails {
     private Long id;
     private Long userId; 
     private List<CartItemsDetails> items;
+    private BigDecimal subtotal;
+    private int itemCount;
 }
@@ -3,6 +3,8 @@ package com.ark.retailpulse.response.CartDtoDetails;
 import com.ark.retailpulse.dto.product.ProductDTO;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Data
 public class CartItemsDetails {
     private Long id;
@@ -10,4 +12,14 @@ public class CartItemsDetails {
     private ProductDTO product;
 
     private Integer quantity;
+
+    /**
+     * The price when the item was added; the subtotal is based on it.
+     */
+    private BigDecimal unitPrice;
+
+    /**
+     * Whether the product's current price differs from {@link #unitPrice}.
+     */
+    private boolean priceChanged;
 }
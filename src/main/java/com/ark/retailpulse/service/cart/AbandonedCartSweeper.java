@@ -0,0 +1,150 @@
+package com.ark.retailpulse.service.cart;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deletes carts that have not changed for longer than the configured idle age.
+ * Carts are deleted in bounded chunks, each in its own short transaction, with a pause
+ * between chunks so the sweep never holds many row locks or competes with shoppers for long.
+ * The sweep runs on its own thread, so its pauses never hold a thread of the shared scheduler
+ * that the cart, inventory and outbox flushers run on.
+ */
+@Service
+public class AbandonedCartSweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartSweeper.class);
+
+    // Picks one chunk of idle carts, skipping any a shopper is changing right now,
+    // and deletes them together with their items in one statement
+    private static final String DELETE_CHUNK =
+            "WITH doomed AS (SELECT id FROM cart WHERE updated_at < ? ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED), " +
+            "items AS (DELETE FROM cart_item WHERE cart_id IN (SELECT id FROM doomed) RETURNING cart_id), " +
+            "carts AS (DELETE FROM cart WHERE id IN (SELECT id FROM doomed) RETURNING id) " +
+            "SELECT (SELECT count(*) FROM carts), (SELECT count(*) FROM items)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration maxIdle;
+    private final int batchSize;
+    private final Duration pause;
+
+    private final ExecutorService sweepExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "cart-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    private final Counter sweptCarts;
+    private final Counter sweptItems;
+    private final Timer sweepTimer;
+
+    public AbandonedCartSweeper(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${retailpulse.cart.sweep.max-idle:30d}") Duration maxIdle,
+                                @Value("${retailpulse.cart.sweep.batch-size:1000}") int batchSize,
+                                @Value("${retailpulse.cart.sweep.pause:200ms}") Duration pause) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxIdle = maxIdle;
+        this.batchSize = batchSize;
+        this.pause = pause;
+        this.sweptCarts = Counter.builder("carts.swept").tag("rows", "carts").register(meterRegistry);
+        this.sweptItems = Counter.builder("carts.swept").tag("rows", "items").register(meterRegistry);
+        this.sweepTimer = Timer.builder("carts.sweep").register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweepExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts a sweep on the sweeper thread unless one is still running. Runs nightly by default.
+     */
+    @Scheduled(cron = "${retailpulse.cart.sweep.cron:0 0 4 * * *}")
+    public void scheduleSweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            logger.warn("Previous abandoned cart sweep still running, skipping this one");
+            return;
+        }
+        try {
+            sweepExecutor.execute(() -> {
+                try {
+                    sweep();
+                } catch (RuntimeException e) {
+                    logger.error("Abandoned cart sweep failed: {}", e.getMessage());
+                } finally {
+                    sweeping.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            sweeping.set(false);
+        }
+    }
+
+    /**
+     * Sweeps abandoned carts on the calling thread.
+     *
+     * @return the number of deleted carts
+     */
+    public long sweep() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(maxIdle));
+        long start = System.nanoTime();
+        long carts = 0;
+        long items = 0;
+        try {
+            long[] chunk;
+            do {
+                chunk = transactionTemplate.execute(status -> jdbcTemplate.queryForObject(DELETE_CHUNK,
+                        (rs, rowNum) -> new long[]{rs.getLong(1), rs.getLong(2)}, cutoff, batchSize));
+                carts += chunk[0];
+                items += chunk[1];
+                sweptCarts.increment(chunk[0]);
+                sweptItems.increment(chunk[1]);
+            } while (chunk[0] == batchSize && pause());
+        } finally {
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            sweepTimer.record(elapsed);
+            logger.info("Swept {} abandoned carts with {} items idle since {} in {} ms",
+                    carts, items, cutoff, elapsed.toMillis());
+        }
+        return carts;
+    }
+
+    /**
+     * Waits between chunks.
+     *
+     * @return false if the sweep should stop because the thread was interrupted
+     */
+    private boolean pause() {
+        try {
+            Thread.sleep(pause.toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
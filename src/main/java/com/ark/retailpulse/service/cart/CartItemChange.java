@@ -0,0 +1,22 @@
+package com.ark.retailpulse.service.cart;
+
+import java.math.BigDecimal;
+
+/**
+ * The net change to one cart item after folding a batch of operations.
+ *
+ * @param productId the product ID
+ * @param quantity  the quantity to add, or the new quantity when absolute (zero removes the item)
+ * @param absolute  whether the quantity replaces the current one instead of being added to it
+ * @param unitPrice the current product price, snapshotted if the item is new; null for removals
+ */
+public record CartItemChange(Long productId, int quantity, boolean absolute, BigDecimal unitPrice) {
+
+    public CartItemChange withUnitPrice(BigDecimal price) {
+        return new CartItemChange(productId, quantity, absolute, price);
+    }
+
+    public boolean isRemoval() {
+        return absolute && quantity == 0;
+    }
+}
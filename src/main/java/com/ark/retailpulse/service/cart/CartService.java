@@ -1,96 +1,86 @@
 package com.ark.retailpulse.service.cart;
 
-import com.ark.retailpulse.exception.InsufficientStockException;
+import com.ark.retailpulse.dto.cart.CartOperationDTO;
+import com.ark.retailpulse.dto.cart.CartSummaryDTO;
+import com.ark.retailpulse.dto.product.ProductDTO;
 import com.ark.retailpulse.exception.ResourceNotFoundException;
-import com.ark.retailpulse.mapper.CartMapper;
-import com.ark.retailpulse.model.Cart;
-import com.ark.retailpulse.model.CartItem;
-import com.ark.retailpulse.model.Product;
-import com.ark.retailpulse.model.User;
-import com.ark.retailpulse.repository.CartRepository;
 import com.ark.retailpulse.repository.ProductRepository;
-import com.ark.retailpulse.repository.UserRepository;
+import com.ark.retailpulse.repository.ProductStockView;
 import com.ark.retailpulse.response.CartDtoDetails.CartDtoDetails;
+import com.ark.retailpulse.service.product.ProductService;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.Optional;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+/**
+ * Entry point for cart operations; delegates to the configured {@link CartStore}.
+ * Items entering a cart take a stock hold through the {@link StockReservationService}.
+ */
 @Service
 @RequiredArgsConstructor
 public class CartService {
 
     private static final Logger logger = LoggerFactory.getLogger(CartService.class);
 
-    private final CartRepository cartRepository;
+    private final CartStore cartStore;
     private final ProductRepository productRepository;
-    private final UserRepository userRepository;
-    private final CartMapper cartMapper;
+    private final StockReservationService stockReservationService;
+    private final ProductService productService;
+
+    @Value("${retailpulse.cart.store:jpa}")
+    private String cartStoreType;
 
     /**
-     * Adds a product to the user's cart. Creates a new cart if none exists.
+     * Adds a product to the user's cart and holds its stock. Creates a new cart if none exists.
      *
      * @param userId    the ID of the user
      * @param productId the ID of the product to add
      * @param quantity  the quantity of the product to add
      * @return the details of the updated cart
      */
+    @Transactional
     public CartDtoDetails addToCart(Long userId, Long productId, Integer quantity) {
         logger.info("Adding product with ID {} to cart for user with ID {}", productId, userId);
+        List<CartItemChange> changes = validateStock(userId, List.of(new CartItemChange(productId, quantity, false, null)));
+        return cartStore.applyChanges(userId, changes);
+    }
 
-        // Fetch the user and validate existence
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> {
-                    logger.error("User with ID {} not found", userId);
-                    return new ResourceNotFoundException("User not found");
-                });
-
-        // Fetch the product and validate availability and price
-        Product product = productRepository.findById(productId)
-                .orElseThrow(() -> {
-                    logger.error("Product with ID {} not found", productId);
-                    return new ResourceNotFoundException("Product not found");
-                });
-        if (product.getPrice() == null) {
-            logger.error("Product with ID {} does not have a price set", productId);
-            throw new IllegalStateException("Product price is not set");
-        }
-        if (product.getQuantity() < quantity) {
-            logger.error("Requested quantity {} exceeds available stock for product ID {}", quantity, productId);
-            throw new InsufficientStockException("Quantity exceeds available stock quantity");
-        }
-
-        // Fetch or create the cart for the user
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElse(new Cart(null, user, new ArrayList<>()));
-
-        // Check if the product already exists in the cart
-        Optional<CartItem> existingCartItem = cart.getItems().stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst();
-
-        if (existingCartItem.isPresent()) {
-            // Update the quantity of the existing cart item
-            CartItem cartItem = existingCartItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            logger.info("Updated quantity for product ID {} in cart for user ID {}", productId, userId);
-        } else {
-            // Add a new item to the cart
-            CartItem cartItem = new CartItem(null, cart, product, quantity);
-            cart.getItems().add(cartItem);
-            logger.info("Added new product ID {} to cart for user ID {}", productId, userId);
+    /**
+     * Applies a batch of add, set-quantity and remove operations to the user's cart in one
+     * transaction. Operations on the same product are folded into one net change first, and
+     * all affected products are validated and their stock held with a single query.
+     *
+     * @param userId     the ID of the user
+     * @param operations the operations, applied in order
+     * @return the details of the updated cart
+     */
+    @Transactional
+    public CartDtoDetails applyOperations(Long userId, List<CartOperationDTO> operations) {
+        logger.info("Applying {} cart operations for user ID {}", operations.size(), userId);
+
+        Map<Long, CartItemChange> changes = new LinkedHashMap<>();
+        for (CartOperationDTO operation : operations) {
+            Long productId = operation.getProductId();
+            CartItemChange current = changes.get(productId);
+            CartItemChange next = switch (operation.getOp()) {
+                case ADD -> current == null
+                        ? new CartItemChange(productId, operation.getQuantity(), false, null)
+                        : new CartItemChange(productId, current.quantity() + operation.getQuantity(), current.absolute(), null);
+                case SET -> new CartItemChange(productId, operation.getQuantity(), true, null);
+                case REMOVE -> new CartItemChange(productId, 0, true, null);
+            };
+            changes.put(productId, next);
         }
 
-        // Save the updated cart to the repository
-        Cart savedCart = cartRepository.save(cart);
-        CartDtoDetails cartDtoDetails = cartMapper.toDtoDetails(savedCart);
-        cartDtoDetails.setUserId(user.getId());
-        logger.info("Cart updated successfully for user ID {}", userId);
-
-        return cartDtoDetails;
+        return cartStore.applyChanges(userId, validateStock(userId, changes.values()));
     }
 
     /**
@@ -101,39 +91,107 @@ public class CartService {
      */
     public CartDtoDetails getCart(Long userId) {
         logger.info("Fetching cart for user ID {}", userId);
+        return cartStore.getCart(userId);
+    }
 
-        // Fetch the cart for the user
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> {
-                    logger.error("Cart not found for user ID {}", userId);
-                    return new ResourceNotFoundException("Cart not found");
-                });
-
-        CartDtoDetails cartDtoDetails = cartMapper.toDtoDetails(cart);
-        cartDtoDetails.setUserId(cart.getUser().getId());
-        logger.info("Cart retrieved successfully for user ID {}", userId);
-
-        return cartDtoDetails;
+    /**
+     * Retrieves the item count and subtotal of the user's cart.
+     * Both are maintained on every cart change, so this does not read the items.
+     *
+     * @param userId the ID of the user
+     * @return the cart totals
+     */
+    public CartSummaryDTO getSummary(Long userId) {
+        return cartStore.getSummary(userId);
     }
 
     /**
-     * Clears all items from the user's cart.
+     * Clears all items from the user's cart and releases their stock holds.
      *
      * @param userId the ID of the user
      */
     public void clearCart(Long userId) {
         logger.info("Clearing cart for user ID {}", userId);
+        cartStore.clearCart(userId);
+        stockReservationService.releaseAll(userId);
+    }
 
-        // Fetch the cart for the user
-        Cart cart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> {
-                    logger.error("Cart not found for user ID {}", userId);
-                    return new ResourceNotFoundException("Cart not found");
-                });
-
-        // Clear the cart items and save
-        cart.getItems().clear();
-        cartRepository.save(cart);
-        logger.info("Cart cleared successfully for user ID {}", userId);
+    /**
+     * Checks that every product being added or set exists and has a price, then holds the
+     * stock for all changes, which fails if a product does not have enough left.
+     * With the Redis cart store, products come from the product cache so an add stays off the
+     * database; the cached stock may lag, and checkout enforces the real stock anyway.
+     *
+     * @return the changes with the current product prices filled in
+     */
+    private List<CartItemChange> validateStock(Long userId, Collection<CartItemChange> changes) {
+        Set<Long> productIds = changes.stream()
+                .filter(change -> !change.isRemoval())
+                .map(CartItemChange::productId)
+                .collect(Collectors.toSet());
+        if (productIds.isEmpty()) {
+            stockReservationService.reserve(userId, changes, Map.of());
+            return List.copyOf(changes);
+        }
+
+        Map<Long, ProductStockView> stock = "redis".equals(cartStoreType)
+                ? cachedStock(productIds)
+                : productRepository.findStockByIdIn(productIds).stream()
+                        .collect(Collectors.toMap(ProductStockView::getId, Function.identity()));
+        Map<Long, Integer> available = new HashMap<>();
+        List<CartItemChange> priced = new ArrayList<>();
+        for (CartItemChange change : changes) {
+            if (change.isRemoval()) {
+                priced.add(change);
+                continue;
+            }
+            ProductStockView product = stock.get(change.productId());
+            if (product == null) {
+                logger.error("Product with ID {} not found", change.productId());
+                throw new ResourceNotFoundException("Product not found: " + change.productId());
+            }
+            if (product.getPrice() == null) {
+                logger.error("Product with ID {} does not have a price set", change.productId());
+                throw new IllegalStateException("Product price is not set");
+            }
+            available.put(change.productId(), product.getQuantity() == null ? 0 : product.getQuantity());
+            priced.add(change.withUnitPrice(product.getPrice()));
+        }
+        stockReservationService.reserve(userId, priced, available);
+        return priced;
+    }
+
+    private Map<Long, ProductStockView> cachedStock(Set<Long> productIds) {
+        Map<Long, ProductStockView> stock = new HashMap<>();
+        for (Long productId : productIds) {
+            ProductDTO product;
+            try {
+                product = productService.getProduct(productId);
+            } catch (ResourceNotFoundException e) {
+                continue;
+            }
+            stock.put(productId, new CachedStock(productId, product.getPrice(), product.getQuantity()));
+        }
+        return stock;
+    }
+
+    /**
+     * Price and stock of a product as the product cache holds it.
+     */
+    private record CachedStock(Long id, BigDecimal price, Integer quantity) implements ProductStockView {
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public BigDecimal getPrice() {
+            return price;
+        }
+
+        @Override
+        public Integer getQuantity() {
+            return quantity;
+        }
     }
 }
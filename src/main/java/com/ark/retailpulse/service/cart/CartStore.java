@@ -0,0 +1,49 @@
+package com.ark.retailpulse.service.cart;
+
+import com.ark.retailpulse.dto.cart.CartSummaryDTO;
+import com.ark.retailpulse.response.CartDtoDetails.CartDtoDetails;
+
+import java.util.Collection;
+
+/**
+ * Storage backend for shopping carts.
+ * Selected with {@code retailpulse.cart.store}: {@code jpa} (default) keeps carts in the
+ * database only, {@code redis} serves them from Redis and writes them behind to the database.
+ */
+public interface CartStore {
+
+    /**
+     * Applies a set of item changes to the user's cart at once, creating the cart if none exists.
+     * Products are expected to have been validated, and their prices filled in, by the caller.
+     *
+     * @param userId  the ID of the user
+     * @param changes the net change per product
+     * @return the details of the updated cart
+     */
+    CartDtoDetails applyChanges(Long userId, Collection<CartItemChange> changes);
+
+    /**
+     * Retrieves the user's cart.
+     *
+     * @param userId the ID of the user
+     * @return the details of the user's cart
+     * @throws com.ark.retailpulse.exception.ResourceNotFoundException if the user has no cart
+     */
+    CartDtoDetails getCart(Long userId);
+
+    /**
+     * Retrieves the totals of the user's cart without its items.
+     *
+     * @param userId the ID of the user
+     * @return the item count and subtotal, zero if the user has no cart
+     */
+    CartSummaryDTO getSummary(Long userId);
+
+    /**
+     * Removes all items from the user's cart.
+     *
+     * @param userId the ID of the user
+     * @throws com.ark.retailpulse.exception.ResourceNotFoundException if the user has no cart
+     */
+    void clearCart(Long userId);
+}
@@ -0,0 +1,271 @@
+package com.ark.retailpulse.service.cart;
+
+import com.ark.retailpulse.exception.InsufficientStockException;
+import com.ark.retailpulse.repository.ProductRepository;
+import com.ark.retailpulse.repository.ProductStockView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stock holds kept in the memory of this node, for single-node deployments.
+ * Each product's holds are guarded by one of a fixed set of lock stripes, so shoppers of
+ * different products rarely contend.
+ */
+@Service
+@ConditionalOnProperty(name = "retailpulse.cart.reservations.store", havingValue = "memory")
+public class InMemoryStockReservationService implements StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryStockReservationService.class);
+
+    private final ProductRepository productRepository;
+    private final long ttlMillis;
+    private final Object[] stripes;
+
+    private final Map<Long, ProductHolds> holdsByProduct = new ConcurrentHashMap<>();
+    // Products each user holds, so a whole cart can be released without scanning every product.
+    // A user's set is only changed inside compute calls on its entry, and the entry goes once it is empty.
+    private final Map<Long, Set<Long>> productsByUser = new ConcurrentHashMap<>();
+    private final AtomicLong heldUnits = new AtomicLong();
+
+    private final Counter rejected;
+    private final Counter expired;
+
+    public InMemoryStockReservationService(ProductRepository productRepository,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${retailpulse.cart.reservations.ttl:15m}") Duration ttl,
+                                           @Value("${retailpulse.cart.reservations.stripes:64}") int stripeCount) {
+        this.productRepository = productRepository;
+        this.ttlMillis = ttl.toMillis();
+        this.stripes = new Object[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Object();
+        }
+        this.rejected = Counter.builder("stock.reservations.rejected").register(meterRegistry);
+        this.expired = Counter.builder("stock.reservations.expired").register(meterRegistry);
+        Gauge.builder("stock.reservations.held", heldUnits, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Override
+    public void reserve(Long userId, Collection<CartItemChange> changes, Map<Long, Integer> stock) {
+        Map<Long, Hold> previous = new HashMap<>();
+        try {
+            for (CartItemChange change : changes) {
+                Long productId = change.productId();
+                synchronized (stripe(productId)) {
+                    ProductHolds holds = holdsByProduct.computeIfAbsent(productId, id -> new ProductHolds());
+                    long now = System.currentTimeMillis();
+                    holds.purgeExpired(productId, now);
+                    Hold existing = holds.byUser.get(userId);
+                    previous.putIfAbsent(productId, existing);
+                    int held = existing == null ? 0 : existing.quantity();
+
+                    if (change.isRemoval()) {
+                        holds.put(productId, userId, null);
+                        continue;
+                    }
+                    int target = change.absolute() ? change.quantity() : held + change.quantity();
+                    int available = stock.getOrDefault(productId, 0) - (holds.reserved - held);
+                    if (available < target) {
+                        rejected.increment();
+                        logger.warn("Cannot hold {} units of product ID {} for user ID {}, {} available",
+                                target, productId, userId, available);
+                        throw new InsufficientStockException("Quantity exceeds available stock quantity for product " + productId);
+                    }
+                    holds.put(productId, userId, new Hold(target, now + ttlMillis));
+                }
+            }
+        } catch (InsufficientStockException e) {
+            restore(userId, previous);
+            throw e;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The cart write follows in the same transaction; if it fails, the holds must not outlive it
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(userId, previous);
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void ensureAvailable(Long userId, Map<Long, Integer> quantities) {
+        Map<Long, Integer> stock = new HashMap<>();
+        for (ProductStockView product : productRepository.findStockByIdIn(quantities.keySet())) {
+            stock.put(product.getId(), product.getQuantity() == null ? 0 : product.getQuantity());
+        }
+        quantities.forEach((productId, quantity) -> {
+            int available = stock.getOrDefault(productId, 0) - heldByOthers(userId, productId);
+            if (available < quantity) {
+                rejected.increment();
+                logger.warn("Cannot order {} units of product ID {} for user ID {}, {} available",
+                        quantity, productId, userId, available);
+                throw new InsufficientStockException("Insufficient stock for product " + productId);
+            }
+        });
+    }
+
+    @Override
+    public void releaseAll(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(userId);
+                }
+            });
+        } else {
+            release(userId);
+        }
+    }
+
+    /**
+     * Drops expired holds so their stock becomes available again.
+     */
+    @Scheduled(fixedDelayString = "${retailpulse.cart.reservations.purge-interval:60000}")
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        for (Long productId : holdsByProduct.keySet()) {
+            synchronized (stripe(productId)) {
+                ProductHolds holds = holdsByProduct.get(productId);
+                if (holds != null) {
+                    holds.purgeExpired(productId, now);
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the user's holds back to what they were before a reservation.
+     */
+    private void restore(Long userId, Map<Long, Hold> previous) {
+        previous.forEach((productId, hold) -> {
+            synchronized (stripe(productId)) {
+                holdsByProduct.computeIfAbsent(productId, id -> new ProductHolds()).put(productId, userId, hold);
+            }
+        });
+    }
+
+    /**
+     * The number of users currently indexed as holding stock.
+     */
+    int trackedUsers() {
+        return productsByUser.size();
+    }
+
+    private void release(Long userId) {
+        Set<Long> productIds = productsByUser.remove(userId);
+        if (productIds == null) {
+            return;
+        }
+        for (Long productId : productIds) {
+            synchronized (stripe(productId)) {
+                ProductHolds holds = holdsByProduct.get(productId);
+                if (holds != null) {
+                    holds.put(productId, userId, null);
+                }
+            }
+        }
+    }
+
+    private int heldByOthers(Long userId, Long productId) {
+        synchronized (stripe(productId)) {
+            ProductHolds holds = holdsByProduct.get(productId);
+            if (holds == null) {
+                return 0;
+            }
+            holds.purgeExpired(productId, System.currentTimeMillis());
+            Hold own = holds.byUser.get(userId);
+            return holds.reserved - (own == null ? 0 : own.quantity());
+        }
+    }
+
+    /**
+     * Drops a product from the user's index entry, and the entry once it is empty.
+     */
+    private void forget(Long userId, Long productId) {
+        productsByUser.computeIfPresent(userId, (id, products) -> {
+            products.remove(productId);
+            return products.isEmpty() ? null : products;
+        });
+    }
+
+    private Object stripe(Long productId) {
+        return stripes[Math.floorMod(productId.hashCode(), stripes.length)];
+    }
+
+    /**
+     * A user's hold on one product.
+     */
+    private record Hold(int quantity, long expiresAt) {
+    }
+
+    /**
+     * The holds on one product. Only accessed under the product's stripe lock.
+     */
+    private final class ProductHolds {
+        private final Map<Long, Hold> byUser = new HashMap<>();
+        private int reserved;
+
+        /**
+         * Replaces the user's hold, or removes it when the new hold is null.
+         */
+        void put(Long productId, Long userId, Hold hold) {
+            Hold old = hold == null ? byUser.remove(userId) : byUser.put(userId, hold);
+            int delta = (hold == null ? 0 : hold.quantity()) - (old == null ? 0 : old.quantity());
+            reserved += delta;
+            heldUnits.addAndGet(delta);
+            if (hold != null) {
+                productsByUser.compute(userId, (id, products) -> {
+                    Set<Long> held = products == null ? new HashSet<>() : products;
+                    held.add(productId);
+                    return held;
+                });
+            } else if (old != null) {
+                forget(userId, productId);
+            }
+            if (byUser.isEmpty()) {
+                holdsByProduct.remove(productId);
+            } else {
+                // Purging may have unmapped this instance earlier under the same lock
+                holdsByProduct.put(productId, this);
+            }
+        }
+
+        void purgeExpired(Long productId, long now) {
+            Iterator<Map.Entry<Long, Hold>> iterator = byUser.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Hold> entry = iterator.next();
+                Hold hold = entry.getValue();
+                if (hold.expiresAt() <= now) {
+                    iterator.remove();
+                    forget(entry.getKey(), productId);
+                    reserved -= hold.quantity();
+                    heldUnits.addAndGet(-hold.quantity());
+                    expired.increment();
+                }
+            }
+            if (byUser.isEmpty()) {
+                holdsByProduct.remove(productId);
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.ark.retailpulse.service.cart;
+
+import com.ark.retailpulse.dto.cart.CartSummaryDTO;
+import com.ark.retailpulse.dto.product.ProductDTO;
+import com.ark.retailpulse.exception.ResourceNotFoundException;
+import com.ark.retailpulse.model.Cart;
+import com.ark.retailpulse.repository.CartItemView;
+import com.ark.retailpulse.repository.CartRepository;
+import com.ark.retailpulse.response.CartDtoDetails.CartDtoDetails;
+import com.ark.retailpulse.response.CartDtoDetails.CartItemsDetails;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Cart store keeping carts in the database only.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "retailpulse.cart.store", havingValue = "jpa", matchIfMissing = true)
+public class JpaCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(JpaCartStore.class);
+
+    // Each statement updates the cart totals and the item in one go. The totals are adjusted
+    // by the change in quantity times the item's snapshot price, read before the item changes.
+    private static final String ADD_ITEM =
+            "WITH c AS (INSERT INTO cart (user_id, subtotal, item_count) VALUES (:userId, :quantity * :price, :quantity) " +
+            "ON CONFLICT (user_id) DO UPDATE SET updated_at = CURRENT_TIMESTAMP, item_count = cart.item_count + :quantity, " +
+            "subtotal = cart.subtotal + :quantity * COALESCE((SELECT ci.unit_price FROM cart_item ci " +
+            "WHERE ci.cart_id = cart.id AND ci.product_id = :productId), :price) RETURNING id) " +
+            "INSERT INTO cart_item (cart_id, product_id, quantity, unit_price) SELECT c.id, :productId, :quantity, :price FROM c " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = cart_item.quantity + EXCLUDED.quantity, " +
+            "unit_price = COALESCE(cart_item.unit_price, EXCLUDED.unit_price)";
+    private static final String SET_ITEM =
+            "WITH c AS (INSERT INTO cart (user_id, subtotal, item_count) VALUES (:userId, :quantity * :price, :quantity) " +
+            "ON CONFLICT (user_id) DO UPDATE SET updated_at = CURRENT_TIMESTAMP, item_count = cart.item_count + :quantity - COALESCE((SELECT ci.quantity FROM cart_item ci " +
+            "WHERE ci.cart_id = cart.id AND ci.product_id = :productId), 0), " +
+            "subtotal = cart.subtotal + COALESCE((SELECT (:quantity - ci.quantity) * COALESCE(ci.unit_price, :price) FROM cart_item ci " +
+            "WHERE ci.cart_id = cart.id AND ci.product_id = :productId), :quantity * :price) RETURNING id) " +
+            "INSERT INTO cart_item (cart_id, product_id, quantity, unit_price) SELECT c.id, :productId, :quantity, :price FROM c " +
+            "ON CONFLICT (cart_id, product_id) DO UPDATE SET quantity = EXCLUDED.quantity, " +
+            "unit_price = COALESCE(cart_item.unit_price, EXCLUDED.unit_price)";
+    private static final String REMOVE_ITEM =
+            "WITH d AS (DELETE FROM cart_item WHERE product_id = :productId AND cart_id IN (SELECT id FROM cart WHERE user_id = :userId) " +
+            "RETURNING cart_id, quantity, unit_price) " +
+            "UPDATE cart SET updated_at = CURRENT_TIMESTAMP, item_count = cart.item_count - d.quantity, " +
+            "subtotal = cart.subtotal - d.quantity * COALESCE(d.unit_price, 0) FROM d WHERE cart.id = d.cart_id";
+
+    // One-off backfill for items added before prices were snapshotted
+    private static final String BACKFILL_UNIT_PRICES =
+            "UPDATE cart_item SET unit_price = (SELECT p.price FROM product p WHERE p.id = cart_item.product_id) " +
+            "WHERE unit_price IS NULL";
+    private static final String RECOMPUTE_TOTALS =
+            "UPDATE cart SET " +
+            "subtotal = COALESCE((SELECT SUM(ci.quantity * ci.unit_price) FROM cart_item ci WHERE ci.cart_id = cart.id), 0), " +
+            "item_count = COALESCE((SELECT SUM(ci.quantity) FROM cart_item ci WHERE ci.cart_id = cart.id), 0)";
+
+    private final CartRepository cartRepository;
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Applies the changes with one JDBC batch per kind of change, inside the caller's transaction.
+     * The cart totals are adjusted by the same statements that change the items.
+     */
+    @Override
+    @Transactional
+    public CartDtoDetails applyChanges(Long userId, Collection<CartItemChange> changes) {
+        List<MapSqlParameterSource> adds = new ArrayList<>();
+        List<MapSqlParameterSource> sets = new ArrayList<>();
+        List<MapSqlParameterSource> removals = new ArrayList<>();
+        for (CartItemChange change : changes) {
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("userId", userId)
+                    .addValue("productId", change.productId())
+                    .addValue("quantity", change.quantity())
+                    .addValue("price", change.unitPrice());
+            if (change.isRemoval()) {
+                removals.add(params);
+            } else {
+                (change.absolute() ? sets : adds).add(params);
+            }
+        }
+
+        if (!adds.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_ITEM, adds.toArray(MapSqlParameterSource[]::new));
+        }
+        if (!sets.isEmpty()) {
+            jdbcTemplate.batchUpdate(SET_ITEM, sets.toArray(MapSqlParameterSource[]::new));
+        }
+        if (!removals.isEmpty()) {
+            jdbcTemplate.batchUpdate(REMOVE_ITEM, removals.toArray(MapSqlParameterSource[]::new));
+        }
+        logger.info("Applied {} item changes to cart for user ID {}", changes.size(), userId);
+
+        return getCart(userId);
+    }
+
+    /**
+     * Retrieves the user's cart.
+     *
+     * @param userId the ID of the user
+     * @return the details of the user's cart
+     */
+    @Override
+    public CartDtoDetails getCart(Long userId) {
+        // Read the cart, its items and their products with a single projection query
+        List<CartItemView> rows = cartRepository.findItemViewsByUserId(userId);
+        if (rows.isEmpty()) {
+            logger.error("Cart not found for user ID {}", userId);
+            throw new ResourceNotFoundException("Cart not found");
+        }
+
+        CartItemView cart = rows.get(0);
+        CartDtoDetails cartDtoDetails = new CartDtoDetails();
+        cartDtoDetails.setId(cart.getCartId());
+        cartDtoDetails.setUserId(userId);
+        cartDtoDetails.setSubtotal(cart.getSubtotal());
+        cartDtoDetails.setItemCount(cart.getItemCount());
+        cartDtoDetails.setItems(rows.stream()
+                .filter(row -> row.getItemId() != null)
+                .map(JpaCartStore::toItemDetails)
+                .toList());
+        logger.info("Cart retrieved successfully for user ID {}", userId);
+
+        return cartDtoDetails;
+    }
+
+    /**
+     * Clears all items from the user's cart.
+     *
+     * @param userId the ID of the user
+     */
+    @Override
+    public void clearCart(Long userId) {
+        // Fetch the cart for the user
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> {
+                    logger.error("Cart not found for user ID {}", userId);
+                    return new ResourceNotFoundException("Cart not found");
+                });
+
+        // Clear the cart items and totals and save
+        cart.getItems().clear();
+        cart.setSubtotal(BigDecimal.ZERO);
+        cart.setItemCount(0);
+        cartRepository.save(cart);
+        logger.info("Cart cleared successfully for user ID {}", userId);
+    }
+
+    @Override
+    public CartSummaryDTO getSummary(Long userId) {
+        return cartRepository.findSummaryByUserId(userId)
+                .orElseGet(() -> new CartSummaryDTO(0, BigDecimal.ZERO));
+    }
+
+    /**
+     * Snapshots prices of items added before snapshots existed, and initialises the totals of their carts.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillTotals() {
+        int items = jdbcTemplate.getJdbcTemplate().update(BACKFILL_UNIT_PRICES);
+        if (items > 0) {
+            int carts = jdbcTemplate.getJdbcTemplate().update(RECOMPUTE_TOTALS);
+            logger.info("Snapshotted prices of {} cart items and recomputed totals of {} carts", items, carts);
+        }
+    }
+
+    private static CartItemsDetails toItemDetails(CartItemView row) {
+        ProductDTO product = new ProductDTO();
+        product.setId(row.getProductId());
+        product.setName(row.getName());
+        product.setDescription(row.getDescription());
+        product.setPrice(row.getPrice());
+        product.setQuantity(row.getStock());
+        product.setImage(row.getImage());
+        product.setVersion(row.getVersion());
+
+        CartItemsDetails item = new CartItemsDetails();
+        item.setId(row.getItemId());
+        item.setProduct(product);
+        item.setQuantity(row.getQuantity());
+        item.setUnitPrice(row.getUnitPrice());
+        // Compared in the same row, so detecting a price change costs nothing extra
+        item.setPriceChanged(row.getUnitPrice() != null && row.getPrice() != null
+                && row.getUnitPrice().compareTo(row.getPrice()) != 0);
+        return item;
+    }
+}
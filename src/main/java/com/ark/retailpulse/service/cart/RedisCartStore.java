@@ -0,0 +1,469 @@
+package com.ark.retailpulse.service.cart;
+
+import com.ark.retailpulse.dto.cart.CartSummaryDTO;
+import com.ark.retailpulse.dto.product.ProductDTO;
+import com.ark.retailpulse.exception.ResourceNotFoundException;
+import com.ark.retailpulse.response.CartDtoDetails.CartDtoDetails;
+import com.ark.retailpulse.response.CartDtoDetails.CartItemsDetails;
+import com.ark.retailpulse.service.product.ProductService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Cart store serving carts from Redis hashes and writing them behind to the database.
+ * Each cart is a hash {@code cart:<userId>} of product ID to quantity, plus {@code price:<productId>}
+ * holding the price snapshotted when the item was first added, so adding an item is a
+ * single scripted round-trip. The scripts also keep the item count and the subtotal (in
+ * cents) in the hash, so a summary is read without touching the items. Changed carts are recorded in a dirty set which a scheduled
+ * flusher drains in batches, replacing the rows of those carts in one JDBC transaction.
+ * A flusher claims a batch by moving it from the dirty set into a lease set and removes it from
+ * there only once the transaction has committed; claims whose lease runs out (the node died
+ * mid-flush) go back to the dirty set, so a crash never loses a change.
+ * Carts missing from Redis (new node, expired key) are loaded from the database on first use.
+ */
+@Component
+@ConditionalOnProperty(name = "retailpulse.cart.store", havingValue = "redis")
+public class RedisCartStore implements CartStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCartStore.class);
+
+    private static final String KEY_PREFIX = "cart:";
+    private static final String DIRTY_KEY = "cart:dirty";
+    // Sorted set of claimed user IDs scored by the time their lease runs out, in milliseconds
+    private static final String FLUSHING_KEY = "cart:flushing";
+    // Present in every loaded cart hash so an empty cart is distinguishable from an unloaded one
+    private static final String LOADED_FIELD = "_";
+    private static final String PRICE_PREFIX = "price:";
+    private static final String COUNT_FIELD = "_count";
+    private static final String SUBTOTAL_FIELD = "_subtotal";
+
+    // Price in cents, and the totals of a cart written before they were kept in the hash
+    private static final String TOTALS_FUNCTIONS =
+            "local function cents(price) " +
+            "  if not price or price == '' then return 0 end " +
+            "  return math.floor(tonumber(price) * 100 + 0.5) " +
+            "end " +
+            "local function ensureTotals(cart) " +
+            "  if redis.call('HEXISTS', cart, '" + COUNT_FIELD + "') == 1 then return end " +
+            "  local fields = redis.call('HGETALL', cart) local count = 0 local subtotal = 0 " +
+            "  for i = 1, #fields, 2 do " +
+            "    local field = fields[i] " +
+            "    if string.sub(field, 1, 1) ~= '_' and string.sub(field, 1, " + PRICE_PREFIX.length() + ") ~= '" + PRICE_PREFIX + "' then " +
+            "      local quantity = tonumber(fields[i + 1]) " +
+            "      count = count + quantity " +
+            "      subtotal = subtotal + quantity * cents(redis.call('HGET', cart, '" + PRICE_PREFIX + "' .. field)) " +
+            "    end " +
+            "  end " +
+            "  redis.call('HSET', cart, '" + COUNT_FIELD + "', count, '" + SUBTOTAL_FIELD + "', subtotal) " +
+            "end ";
+
+    // KEYS: cart, dirty set; ARGV: TTL seconds, user ID, then (product ID, A|S, quantity, price) quads
+    // where A adds the quantity and S sets it, a set quantity of 0 removing the item.
+    // The price is only stored for items not in the cart yet, keeping the first snapshot;
+    // the totals move by the quantity change at that snapshot price.
+    private static final RedisScript<List> APPLY_SCRIPT = new DefaultRedisScript<>(TOTALS_FUNCTIONS +
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return false end " +
+            "ensureTotals(KEYS[1]) " +
+            "for i = 3, #ARGV, 4 do " +
+            "  local price = '" + PRICE_PREFIX + "' .. ARGV[i] " +
+            "  local before = tonumber(redis.call('HGET', KEYS[1], ARGV[i]) or '0') " +
+            "  local after = 0 " +
+            "  if ARGV[i + 1] ~= 'S' or ARGV[i + 2] ~= '0' then " +
+            "    if ARGV[i + 1] == 'A' then after = redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 2]) " +
+            "    else after = tonumber(ARGV[i + 2]) redis.call('HSET', KEYS[1], ARGV[i], after) end " +
+            "    redis.call('HSETNX', KEYS[1], price, ARGV[i + 3]) " +
+            "  end " +
+            "  redis.call('HINCRBY', KEYS[1], '" + COUNT_FIELD + "', after - before) " +
+            "  redis.call('HINCRBY', KEYS[1], '" + SUBTOTAL_FIELD + "', (after - before) * cents(redis.call('HGET', KEYS[1], price))) " +
+            "  if after == 0 then redis.call('HDEL', KEYS[1], ARGV[i], price) end " +
+            "end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "redis.call('SADD', KEYS[2], ARGV[2]) " +
+            "return redis.call('HGETALL', KEYS[1])", List.class);
+
+    // KEYS: cart, dirty set; ARGV: TTL seconds, user ID
+    private static final RedisScript<Long> CLEAR_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('DEL', KEYS[1]) " +
+            "redis.call('HSET', KEYS[1], '" + LOADED_FIELD + "', '1', '" + COUNT_FIELD + "', 0, '" + SUBTOTAL_FIELD + "', 0) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "redis.call('SADD', KEYS[2], ARGV[2]) " +
+            "return 1", Long.class);
+
+    // KEYS: dirty set, lease set; ARGV: lease milliseconds, batch size.
+    // Returns expired claims to the dirty set, then claims up to a batch of carts that no other
+    // flusher holds a lease on. Carts still leased elsewhere stay dirty for a later run.
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local time = redis.call('TIME') " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+            "local expired = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now) " +
+            "for _, id in ipairs(expired) do redis.call('SADD', KEYS[1], id) end " +
+            "redis.call('ZREMRANGEBYSCORE', KEYS[2], '-inf', now) " +
+            "local claimed = {} " +
+            "for _, id in ipairs(redis.call('SPOP', KEYS[1], ARGV[2])) do " +
+            "  if redis.call('ZSCORE', KEYS[2], id) then redis.call('SADD', KEYS[1], id) " +
+            "  else redis.call('ZADD', KEYS[2], now + tonumber(ARGV[1]), id) table.insert(claimed, id) end " +
+            "end " +
+            "return claimed", List.class);
+
+    // KEYS: cart; ARGV: TTL seconds, then field/value pairs. Never overwrites a loaded cart.
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('HSET', KEYS[1], unpack(ARGV, 2)) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1", Long.class);
+
+    // Items persisted before prices were snapshotted take the current price
+    private static final String SELECT_CART =
+            "SELECT ci.product_id, ci.quantity, COALESCE(ci.unit_price, p.price) FROM cart c " +
+            "LEFT JOIN cart_item ci ON ci.cart_id = c.id LEFT JOIN product p ON p.id = ci.product_id WHERE c.user_id = ?";
+    private static final String INSERT_CART =
+            "INSERT INTO cart (user_id) VALUES (?) ON CONFLICT (user_id) DO NOTHING";
+    private static final String UPDATE_TOTALS =
+            "UPDATE cart SET subtotal = ?, item_count = ?, updated_at = CURRENT_TIMESTAMP WHERE user_id = ?";
+    private static final String DELETE_ITEMS =
+            "DELETE FROM cart_item WHERE cart_id IN (SELECT id FROM cart WHERE user_id = ?)";
+    // Joining product skips items whose product was deleted in the meantime
+    private static final String INSERT_ITEM =
+            "INSERT INTO cart_item (cart_id, product_id, quantity, unit_price) " +
+            "SELECT c.id, p.id, ?, ? FROM cart c JOIN product p ON p.id = ? WHERE c.user_id = ?";
+
+    private final StringRedisTemplate redisTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductService productService;
+    private final String ttlSeconds;
+    private final int flushBatchSize;
+    private final String flushLeaseMillis;
+
+    private final Counter flushedCarts;
+    private final Timer flushTimer;
+
+    public RedisCartStore(StringRedisTemplate redisTemplate,
+                          JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          ProductService productService,
+                          MeterRegistry meterRegistry,
+                          @Value("${retailpulse.cart.redis.ttl:7d}") Duration ttl,
+                          @Value("${retailpulse.cart.redis.flush-batch-size:500}") int flushBatchSize,
+                          @Value("${retailpulse.cart.redis.flush-lease:60s}") Duration flushLease) {
+        this.redisTemplate = redisTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productService = productService;
+        this.ttlSeconds = String.valueOf(ttl.toSeconds());
+        this.flushBatchSize = flushBatchSize;
+        this.flushLeaseMillis = String.valueOf(flushLease.toMillis());
+        this.flushedCarts = Counter.builder("carts.redis.flushed").register(meterRegistry);
+        this.flushTimer = Timer.builder("carts.redis.flush").register(meterRegistry);
+    }
+
+    @Override
+    public CartDtoDetails applyChanges(Long userId, Collection<CartItemChange> changes) {
+        List<String> args = new ArrayList<>();
+        args.add(ttlSeconds);
+        args.add(userId.toString());
+        changes.forEach(change -> {
+            args.add(change.productId().toString());
+            args.add(change.absolute() ? "S" : "A");
+            args.add(String.valueOf(change.quantity()));
+            args.add(change.unitPrice() == null ? "" : change.unitPrice().toPlainString());
+        });
+
+        List<String> keys = List.of(key(userId), DIRTY_KEY);
+        List<?> entries = redisTemplate.execute(APPLY_SCRIPT, keys, args.toArray());
+        if (entries == null) {
+            // Not in Redis yet: load the persisted cart (or an empty one) and retry
+            load(userId, true);
+            entries = redisTemplate.execute(APPLY_SCRIPT, keys, args.toArray());
+        }
+        logger.info("Cart updated successfully for user ID {}", userId);
+        Map<String, String> hash = new HashMap<>();
+        for (int i = 0; i + 1 < entries.size(); i += 2) {
+            hash.put(entries.get(i).toString(), entries.get(i + 1).toString());
+        }
+        return toDetails(userId, toItems(hash));
+    }
+
+    @Override
+    public CartDtoDetails getCart(Long userId) {
+        return toDetails(userId, readItems(userId));
+    }
+
+    /**
+     * Reads the totals the scripts keep in the cart hash, so the cost does not grow with the cart.
+     */
+    @Override
+    public CartSummaryDTO getSummary(Long userId) {
+        List<Object> totals = redisTemplate.opsForHash().multiGet(key(userId), List.of(COUNT_FIELD, SUBTOTAL_FIELD));
+        if (totals.get(0) != null && totals.get(1) != null) {
+            return new CartSummaryDTO(Integer.parseInt(totals.get(0).toString()),
+                    BigDecimal.valueOf(Long.parseLong(totals.get(1).toString()), 2));
+        }
+        // Not loaded yet, or written before the totals were kept
+        Map<Long, CachedItem> items = Boolean.TRUE.equals(redisTemplate.hasKey(key(userId)))
+                ? readItems(userId)
+                : load(userId, false);
+        int itemCount = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        if (items == null) {
+            // No cart yet: an empty summary, as the JPA store answers
+            return new CartSummaryDTO(itemCount, subtotal);
+        }
+        for (CachedItem item : items.values()) {
+            itemCount += item.quantity();
+            subtotal = subtotal.add(item.lineTotal());
+        }
+        return new CartSummaryDTO(itemCount, subtotal);
+    }
+
+    @Override
+    public void clearCart(Long userId) {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(key(userId))) && load(userId, false) == null) {
+            logger.error("Cart not found for user ID {}", userId);
+            throw new ResourceNotFoundException("Cart not found");
+        }
+
+        Runnable clear = () -> redisTemplate.execute(CLEAR_SCRIPT, List.of(key(userId), DIRTY_KEY), ttlSeconds, userId.toString());
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // Called while placing an order: only empty the cart if the order commits
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clear.run();
+                }
+            });
+        } else {
+            clear.run();
+        }
+        logger.info("Cart cleared successfully for user ID {}", userId);
+    }
+
+    /**
+     * Writes changed carts to the database in batches.
+     */
+    @Scheduled(fixedDelayString = "${retailpulse.cart.redis.flush-interval:1000}")
+    @SuppressWarnings("unchecked")
+    public void flush() {
+        List<String> userIds;
+        do {
+            userIds = redisTemplate.execute(CLAIM_SCRIPT, List.of(DIRTY_KEY, FLUSHING_KEY),
+                    flushLeaseMillis, String.valueOf(flushBatchSize));
+            if (userIds == null || userIds.isEmpty()) {
+                return;
+            }
+            flush(userIds);
+        } while (userIds.size() == flushBatchSize);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush carts on shutdown: {}", e.getMessage());
+        }
+    }
+
+    private void flush(List<String> userIds) {
+        // Read all dirty carts in one pipelined round-trip
+        List<Object> hashes = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            userIds.forEach(userId -> connection.hashCommands().hGetAll(key(userId).getBytes(StandardCharsets.UTF_8)));
+            return null;
+        });
+
+        List<Object[]> cartRows = new ArrayList<>();
+        List<Object[]> totalRows = new ArrayList<>();
+        List<Object[]> itemRows = new ArrayList<>();
+        for (int i = 0; i < userIds.size(); i++) {
+            Map<?, ?> hash = (Map<?, ?>) hashes.get(i);
+            if (hash == null || hash.isEmpty()) {
+                // Expired before it could be flushed; keep the persisted copy
+                continue;
+            }
+            Long userId = Long.valueOf(userIds.get(i));
+            cartRows.add(new Object[]{userId});
+            Map<String, String> fields = new HashMap<>();
+            hash.forEach((field, value) -> fields.put(field.toString(), value.toString()));
+            int itemCount = 0;
+            BigDecimal subtotal = BigDecimal.ZERO;
+            for (Map.Entry<Long, CachedItem> item : toItems(fields).entrySet()) {
+                CachedItem cached = item.getValue();
+                itemRows.add(new Object[]{cached.quantity(), cached.unitPrice(), item.getKey(), userId});
+                itemCount += cached.quantity();
+                subtotal = subtotal.add(cached.lineTotal());
+            }
+            totalRows.add(new Object[]{subtotal, itemCount, userId});
+        }
+        if (cartRows.isEmpty()) {
+            release(userIds);
+            return;
+        }
+
+        try {
+            flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_CART, cartRows);
+                jdbcTemplate.batchUpdate(UPDATE_TOTALS, totalRows);
+                jdbcTemplate.batchUpdate(DELETE_ITEMS, cartRows);
+                jdbcTemplate.batchUpdate(INSERT_ITEM, itemRows);
+            }));
+            flushedCarts.increment(cartRows.size());
+            logger.debug("Flushed {} carts with {} items to the database", cartRows.size(), itemRows.size());
+        } catch (RuntimeException e) {
+            // Mark the carts dirty again so the next run retries them
+            redisTemplate.opsForSet().add(DIRTY_KEY, userIds.toArray(String[]::new));
+            logger.error("Failed to flush {} carts to the database: {}", cartRows.size(), e.getMessage());
+        }
+        release(userIds);
+    }
+
+    /**
+     * Drops the leases of flushed carts; only called once their rows are committed or they are dirty again.
+     */
+    private void release(List<String> userIds) {
+        redisTemplate.opsForZSet().remove(FLUSHING_KEY, userIds.toArray());
+    }
+
+    private Map<Long, CachedItem> readItems(Long userId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(key(userId));
+        if (entries.isEmpty()) {
+            Map<Long, CachedItem> items = load(userId, false);
+            if (items == null) {
+                logger.error("Cart not found for user ID {}", userId);
+                throw new ResourceNotFoundException("Cart not found");
+            }
+            return items;
+        }
+        Map<String, String> hash = new HashMap<>();
+        entries.forEach((field, value) -> hash.put(field.toString(), value.toString()));
+        return toItems(hash);
+    }
+
+    /**
+     * Loads the persisted cart into Redis unless another request already did.
+     *
+     * @param userId      the ID of the user
+     * @param createEmpty whether to load an empty cart when none is persisted
+     * @return the loaded items, or null if no cart is persisted and none was created
+     */
+    private Map<Long, CachedItem> load(Long userId, boolean createEmpty) {
+        Map<Long, CachedItem> items = new LinkedHashMap<>();
+        boolean[] found = {false};
+        jdbcTemplate.query(SELECT_CART, rs -> {
+            found[0] = true;
+            long productId = rs.getLong(1);
+            if (!rs.wasNull()) {
+                items.put(productId, new CachedItem(rs.getInt(2), rs.getBigDecimal(3)));
+            }
+        }, userId);
+        if (!found[0] && !createEmpty) {
+            return null;
+        }
+
+        List<String> args = new ArrayList<>();
+        args.add(ttlSeconds);
+        args.add(LOADED_FIELD);
+        args.add("1");
+        args.add(COUNT_FIELD);
+        args.add(String.valueOf(items.values().stream().mapToInt(CachedItem::quantity).sum()));
+        args.add(SUBTOTAL_FIELD);
+        args.add(items.values().stream().map(CachedItem::lineTotal).reduce(BigDecimal.ZERO, BigDecimal::add)
+                .movePointRight(2).setScale(0, RoundingMode.HALF_UP).toPlainString());
+        items.forEach((productId, item) -> {
+            args.add(productId.toString());
+            args.add(String.valueOf(item.quantity()));
+            if (item.unitPrice() != null) {
+                args.add(PRICE_PREFIX + productId);
+                args.add(item.unitPrice().toPlainString());
+            }
+        });
+        redisTemplate.execute(LOAD_SCRIPT, List.of(key(userId)), args.toArray());
+        return items;
+    }
+
+    private CartDtoDetails toDetails(Long userId, Map<Long, CachedItem> items) {
+        List<CartItemsDetails> details = new ArrayList<>();
+        int itemCount = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (Map.Entry<Long, CachedItem> entry : items.entrySet()) {
+            Long productId = entry.getKey();
+            CachedItem cached = entry.getValue();
+            try {
+                ProductDTO product = productService.getProduct(productId);
+                CartItemsDetails item = new CartItemsDetails();
+                item.setProduct(product);
+                item.setQuantity(cached.quantity());
+                item.setUnitPrice(cached.unitPrice());
+                item.setPriceChanged(cached.unitPrice() != null && product.getPrice() != null
+                        && cached.unitPrice().compareTo(product.getPrice()) != 0);
+                details.add(item);
+                itemCount += cached.quantity();
+                subtotal = subtotal.add(cached.lineTotal());
+            } catch (ResourceNotFoundException e) {
+                logger.warn("Skipping deleted product ID {} in cart for user ID {}", productId, userId);
+            }
+        }
+
+        CartDtoDetails cartDtoDetails = new CartDtoDetails();
+        cartDtoDetails.setUserId(userId);
+        cartDtoDetails.setItems(details);
+        cartDtoDetails.setItemCount(itemCount);
+        cartDtoDetails.setSubtotal(subtotal);
+        return cartDtoDetails;
+    }
+
+    /**
+     * Groups the fields of a cart hash into items, skipping the loaded marker and the totals.
+     */
+    private static Map<Long, CachedItem> toItems(Map<String, String> hash) {
+        Map<Long, CachedItem> items = new LinkedHashMap<>();
+        hash.forEach((field, value) -> {
+            if (!field.startsWith(LOADED_FIELD) && !field.startsWith(PRICE_PREFIX)) {
+                String price = hash.get(PRICE_PREFIX + field);
+                items.put(Long.valueOf(field), new CachedItem(Integer.parseInt(value),
+                        price == null || price.isEmpty() ? null : new BigDecimal(price)));
+            }
+        });
+        return items;
+    }
+
+    private static String key(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private static String key(String userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    /**
+     * An item as held in the cart hash.
+     */
+    private record CachedItem(int quantity, BigDecimal unitPrice) {
+
+        BigDecimal lineTotal() {
+            return unitPrice == null ? BigDecimal.ZERO : unitPrice.multiply(BigDecimal.valueOf(quantity));
+        }
+    }
+}
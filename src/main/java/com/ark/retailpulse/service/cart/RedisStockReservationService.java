@@ -0,0 +1,281 @@
+package com.ark.retailpulse.service.cart;
+
+import com.ark.retailpulse.exception.InsufficientStockException;
+import com.ark.retailpulse.repository.ProductRepository;
+import com.ark.retailpulse.repository.ProductStockView;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Stock holds kept in Redis, shared by every node, so a hold taken on one node is released
+ * by a removal or checkout on any other. Each product has a hash {@code holds:<productId>}
+ * of user ID to held quantity plus a {@code _total} counter of all its holds, and a sorted
+ * set {@code holds:<productId>:exp} of user ID by expiry. Every script first drops the
+ * product's expired holds, so expiry needs no sweeper; the keys themselves expire once the
+ * last hold would have. Each user has a set {@code holds:user:<userId>} of the products
+ * they hold, so a cart can be released without scanning products.
+ */
+@Service
+@ConditionalOnProperty(name = "retailpulse.cart.reservations.store", havingValue = "redis", matchIfMissing = true)
+public class RedisStockReservationService implements StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisStockReservationService.class);
+
+    private static final String KEY_PREFIX = "holds:";
+    private static final String USER_KEY_PREFIX = "holds:user:";
+
+    // Drops the expired holds of one product; returns how many there were
+    private static final String PURGE_FUNCTION =
+            "local function purge(holds, exp, now) " +
+            "  local expired = redis.call('ZRANGEBYSCORE', exp, '-inf', now) " +
+            "  for _, user in ipairs(expired) do " +
+            "    local held = tonumber(redis.call('HGET', holds, user) or '0') " +
+            "    redis.call('HDEL', holds, user) " +
+            "    redis.call('HINCRBY', holds, '_total', -held) " +
+            "  end " +
+            "  if #expired > 0 then redis.call('ZREMRANGEBYSCORE', exp, '-inf', now) end " +
+            "  return #expired " +
+            "end ";
+
+    // KEYS: user set, then (holds, exp) per product.
+    // ARGV: user ID, now, expiry, TTL millis, force (1 skips the stock check), then
+    // (product ID, A|S, quantity, stock) quads where A adds to the hold and S sets it, 0 removing it.
+    // Checks every product before writing any, so a refusal changes nothing.
+    // Returns {-1, product ID, available, purged} on refusal, else {1, purged, previous hold per product}.
+    private static final RedisScript<List> RESERVE_SCRIPT = new DefaultRedisScript<>(PURGE_FUNCTION +
+            "local user = ARGV[1] local now = tonumber(ARGV[2]) " +
+            "local n = (#KEYS - 1) / 2 " +
+            "local purged = 0 local held = {} local targets = {} " +
+            "for i = 1, n do " +
+            "  local holds = KEYS[2 * i] local a = 6 + (i - 1) * 4 " +
+            "  purged = purged + purge(holds, KEYS[2 * i + 1], now) " +
+            "  held[i] = tonumber(redis.call('HGET', holds, user) or '0') " +
+            "  local target = tonumber(ARGV[a + 2]) " +
+            "  if ARGV[a + 1] == 'A' then target = math.max(held[i] + target, 0) end " +
+            "  if target > 0 and ARGV[5] ~= '1' then " +
+            "    local total = tonumber(redis.call('HGET', holds, '_total') or '0') " +
+            "    local available = tonumber(ARGV[a + 3]) - (total - held[i]) " +
+            "    if available < target then return {-1, tonumber(ARGV[a]), available, purged} end " +
+            "  end " +
+            "  targets[i] = target " +
+            "end " +
+            "local result = {1, purged} " +
+            "for i = 1, n do " +
+            "  local holds = KEYS[2 * i] local exp = KEYS[2 * i + 1] local product = ARGV[6 + (i - 1) * 4] " +
+            "  if targets[i] == 0 then " +
+            "    if held[i] > 0 then " +
+            "      redis.call('HDEL', holds, user) redis.call('HINCRBY', holds, '_total', -held[i]) " +
+            "      redis.call('ZREM', exp, user) " +
+            "    end " +
+            "    redis.call('SREM', KEYS[1], product) " +
+            "  else " +
+            "    redis.call('HSET', holds, user, targets[i]) redis.call('HINCRBY', holds, '_total', targets[i] - held[i]) " +
+            "    redis.call('ZADD', exp, ARGV[3], user) redis.call('SADD', KEYS[1], product) " +
+            "  end " +
+            "  redis.call('PEXPIRE', holds, ARGV[4]) redis.call('PEXPIRE', exp, ARGV[4]) " +
+            "  result[#result + 1] = held[i] " +
+            "end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[4]) " +
+            "return result", List.class);
+
+    // KEYS: (holds, exp) per product; ARGV: user ID, now.
+    // Returns {purged, then the units other users hold per product}.
+    private static final RedisScript<List> HELD_BY_OTHERS_SCRIPT = new DefaultRedisScript<>(PURGE_FUNCTION +
+            "local result = {0} " +
+            "for i = 1, #KEYS / 2 do " +
+            "  local holds = KEYS[2 * i - 1] " +
+            "  result[1] = result[1] + purge(holds, KEYS[2 * i], tonumber(ARGV[2])) " +
+            "  local total = tonumber(redis.call('HGET', holds, '_total') or '0') " +
+            "  local own = tonumber(redis.call('HGET', holds, ARGV[1]) or '0') " +
+            "  result[#result + 1] = total - own " +
+            "end " +
+            "return result", List.class);
+
+    // KEYS: user set, then (holds, exp) per product; ARGV: user ID
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "for i = 1, (#KEYS - 1) / 2 do " +
+            "  local holds = KEYS[2 * i] " +
+            "  local held = tonumber(redis.call('HGET', holds, ARGV[1]) or '0') " +
+            "  if held > 0 then " +
+            "    redis.call('HDEL', holds, ARGV[1]) redis.call('HINCRBY', holds, '_total', -held) " +
+            "    redis.call('ZREM', KEYS[2 * i + 1], ARGV[1]) " +
+            "  end " +
+            "end " +
+            "redis.call('DEL', KEYS[1]) " +
+            "return 1", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ProductRepository productRepository;
+    private final long ttlMillis;
+
+    private final Counter rejected;
+    private final Counter expired;
+
+    public RedisStockReservationService(StringRedisTemplate redisTemplate,
+                                        ProductRepository productRepository,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${retailpulse.cart.reservations.ttl:15m}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.productRepository = productRepository;
+        this.ttlMillis = ttl.toMillis();
+        this.rejected = Counter.builder("stock.reservations.rejected").register(meterRegistry);
+        this.expired = Counter.builder("stock.reservations.expired").register(meterRegistry);
+    }
+
+    @Override
+    public void reserve(Long userId, Collection<CartItemChange> changes, Map<Long, Integer> stock) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<CartItemChange> ordered = List.copyOf(changes);
+        List<String> args = new ArrayList<>();
+        for (CartItemChange change : ordered) {
+            args.add(change.productId().toString());
+            args.add(change.absolute() ? "S" : "A");
+            args.add(String.valueOf(change.quantity()));
+            args.add(String.valueOf(stock.getOrDefault(change.productId(), 0)));
+        }
+        List<?> result = execute(userId, ordered, args, false);
+        if (((Number) result.get(0)).longValue() < 0) {
+            rejected.increment();
+            logger.warn("Cannot hold stock of product ID {} for user ID {}, {} available",
+                    result.get(1), userId, result.get(2));
+            throw new InsufficientStockException("Quantity exceeds available stock quantity for product " + result.get(1));
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The cart write follows in the same transaction; if it fails, the holds must not outlive it
+            List<String> restore = new ArrayList<>();
+            for (int i = 0; i < ordered.size(); i++) {
+                restore.add(ordered.get(i).productId().toString());
+                restore.add("S");
+                restore.add(String.valueOf(((Number) result.get(i + 2)).longValue()));
+                restore.add("0");
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        try {
+                            execute(userId, ordered, restore, true);
+                        } catch (RuntimeException e) {
+                            // The holds run out with their TTL
+                            logger.warn("Failed to restore stock holds of user ID {}: {}", userId, e.getMessage());
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    @Override
+    public void ensureAvailable(Long userId, Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        Map<Long, Integer> stock = new HashMap<>();
+        for (ProductStockView product : productRepository.findStockByIdIn(quantities.keySet())) {
+            stock.put(product.getId(), product.getQuantity() == null ? 0 : product.getQuantity());
+        }
+        List<Long> productIds = new ArrayList<>(quantities.keySet());
+        List<String> keys = new ArrayList<>();
+        productIds.forEach(productId -> {
+            keys.add(holdsKey(productId));
+            keys.add(expiryKey(productId));
+        });
+        List<?> result = redisTemplate.execute(HELD_BY_OTHERS_SCRIPT, keys,
+                userId.toString(), String.valueOf(System.currentTimeMillis()));
+        expired.increment(((Number) result.get(0)).longValue());
+
+        for (int i = 0; i < productIds.size(); i++) {
+            Long productId = productIds.get(i);
+            int quantity = quantities.get(productId);
+            long available = stock.getOrDefault(productId, 0) - ((Number) result.get(i + 1)).longValue();
+            if (available < quantity) {
+                rejected.increment();
+                logger.warn("Cannot order {} units of product ID {} for user ID {}, {} available",
+                        quantity, productId, userId, available);
+                throw new InsufficientStockException("Insufficient stock for product " + productId);
+            }
+        }
+    }
+
+    @Override
+    public void releaseAll(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release(userId);
+                }
+            });
+        } else {
+            release(userId);
+        }
+    }
+
+    private void release(Long userId) {
+        try {
+            Set<String> productIds = redisTemplate.opsForSet().members(userKey(userId));
+            if (productIds == null || productIds.isEmpty()) {
+                return;
+            }
+            List<String> keys = new ArrayList<>();
+            keys.add(userKey(userId));
+            productIds.forEach(productId -> {
+                keys.add(holdsKey(Long.valueOf(productId)));
+                keys.add(expiryKey(Long.valueOf(productId)));
+            });
+            redisTemplate.execute(RELEASE_SCRIPT, keys, userId.toString());
+        } catch (RuntimeException e) {
+            // Runs after commit; the holds run out with their TTL
+            logger.warn("Failed to release stock holds of user ID {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private List<?> execute(Long userId, List<CartItemChange> changes, List<String> quads, boolean force) {
+        long now = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>();
+        keys.add(userKey(userId));
+        changes.forEach(change -> {
+            keys.add(holdsKey(change.productId()));
+            keys.add(expiryKey(change.productId()));
+        });
+        List<String> args = new ArrayList<>();
+        args.add(userId.toString());
+        args.add(String.valueOf(now));
+        args.add(String.valueOf(now + ttlMillis));
+        args.add(String.valueOf(ttlMillis));
+        args.add(force ? "1" : "0");
+        args.addAll(quads);
+        List<?> result = redisTemplate.execute(RESERVE_SCRIPT, keys, args.toArray());
+        boolean refused = ((Number) result.get(0)).longValue() < 0;
+        expired.increment(((Number) result.get(refused ? 3 : 1)).longValue());
+        return result;
+    }
+
+    private static String holdsKey(Long productId) {
+        return KEY_PREFIX + productId;
+    }
+
+    private static String expiryKey(Long productId) {
+        return KEY_PREFIX + productId + ":exp";
+    }
+
+    private static String userKey(Long userId) {
+        return USER_KEY_PREFIX + userId;
+    }
+}
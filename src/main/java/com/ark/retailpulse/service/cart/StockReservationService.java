@@ -0,0 +1,52 @@
+package com.ark.retailpulse.service.cart;
+
+import com.ark.retailpulse.exception.InsufficientStockException;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Soft, time-limited holds on product stock for items in carts.
+ * A hold is taken when an item enters a cart and counts against the stock seen by every
+ * other shopper, so a sold-out product is refused at add-to-cart rather than at checkout
+ * after the payment order exists. Holds expire after a TTL, are released when the item
+ * leaves the cart, and are dropped once an order deducting the stock commits.
+ * <p>
+ * Selected with {@code retailpulse.cart.reservations.store}: {@code redis} (default) shares the
+ * holds between all nodes, {@code memory} keeps them per node and suits a single node.
+ */
+public interface StockReservationService {
+
+    /**
+     * Takes or adjusts the user's holds for a set of cart changes, all or nothing.
+     * An additive change grows the existing hold, an absolute one replaces it and a removal
+     * releases it. Each hold restarts its TTL. Inside a transaction the previous holds come
+     * back if it rolls back, so a failed cart write leaves no hold behind.
+     *
+     * @param userId  the ID of the user
+     * @param changes the cart changes, at most one per product
+     * @param stock   the current stock of every product being added or set
+     * @throws InsufficientStockException if a product does not have enough stock left
+     *                                    outside other shoppers' holds; no hold is changed then
+     */
+    void reserve(Long userId, Collection<CartItemChange> changes, Map<Long, Integer> stock);
+
+    /**
+     * Checks that the given quantities are still available to the user at checkout, i.e.
+     * covered by the current stock minus what other shoppers hold.
+     *
+     * @param userId     the ID of the user
+     * @param quantities the quantity to order per product ID
+     * @throws InsufficientStockException if a product cannot be covered
+     */
+    void ensureAvailable(Long userId, Map<Long, Integer> quantities);
+
+    /**
+     * Releases all of the user's holds. Inside a transaction this is deferred until commit,
+     * so placing an order turns the holds into the order's stock deduction, and a failed
+     * order keeps them.
+     *
+     * @param userId the ID of the user
+     */
+    void releaseAll(Long userId);
+}
@@ -2,8 +2,6 @@ package com.ark.retailpulse.service.emaiil;
 
 import com.ark.retailpulse.model.Order;
 import com.ark.retailpulse.model.Otp;
-import com.ark.retailpulse.model.User;
-import com.ark.retailpulse.repository.OtpRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,7 +15,6 @@ import org.springframework.stereotype.Service;
 public class EmailService {
     private final JavaMailSender mailSender;
     private final Logger logger = LoggerFactory.getLogger(EmailService.class);
-    private final OtpRepository otpRepository;
 
 
     @Value("${spring.mail.username}")
@@ -40,21 +37,17 @@ public class EmailService {
     /**
      * Sends an email confirmation code to the user.
      *
-     * @param user the user to send the confirmation code to
+     * @param otp the OTP record holding the user's email and current code
      */
-    public void sendEmailConfirmationCode(User user){
-
-        Otp otp = otpRepository.findByUserId(user.getId())
-                .orElseThrow(() -> new RuntimeException(" user not found for sending otp"));
-
+    public void sendEmailConfirmationCode(Otp otp){
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom(fromEmail);
-        message.setTo(user.getEmail());
+        message.setTo(otp.getEmail());
         message.setSubject("Confirm your email");
         message.setText("Please confirm your email by entering this security code " + otp.getEmailOtpCode());
 //        todo: uncomment below line while demo
 //        mailSender.send(message);
-        logger.info("Confirm your email sent to " + user.getEmail());
+        logger.info("Confirm your email sent to " + otp.getEmail());
 
     }
 
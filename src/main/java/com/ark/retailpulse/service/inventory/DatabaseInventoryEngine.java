@@ -0,0 +1,51 @@
+package com.ark.retailpulse.service.inventory;
+
+import com.ark.retailpulse.exception.InsufficientStockException;
+import com.ark.retailpulse.repository.ProductRepository;
+import com.ark.retailpulse.service.product.ProductChangedEvent;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inventory engine that decrements the product rows with one conditional update each. Every
+ * changed product is announced with a {@link ProductChangedEvent}, so the product caches pick
+ * up the new quantity once the order commits.
+ */
+@Component
+@ConditionalOnProperty(name = "retailpulse.inventory.mode", havingValue = "database", matchIfMissing = true)
+@RequiredArgsConstructor
+public class DatabaseInventoryEngine implements InventoryEngine {
+
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Updates products in ascending ID order so concurrent checkouts lock rows in the same
+     * order and cannot deadlock. A short product rolls back the decrements already made.
+     */
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void take(Map<Long, Integer> quantities) {
+        new TreeMap<>(quantities).forEach((productId, quantity) -> {
+            if (productRepository.decrementStock(productId, quantity) == 0) {
+                throw new InsufficientStockException("Insufficient stock for product: " + productId);
+            }
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.UPDATED));
+        });
+    }
+
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void release(Map<Long, Integer> quantities) {
+        new TreeMap<>(quantities).forEach((productId, quantity) -> {
+            productRepository.incrementStock(productId, quantity);
+            eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.UPDATED));
+        });
+    }
+}
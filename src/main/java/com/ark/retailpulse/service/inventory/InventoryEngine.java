@@ -0,0 +1,29 @@
+package com.ark.retailpulse.service.inventory;
+
+import java.util.Map;
+
+/**
+ * Decides whether stock can be taken for an order and records the deduction.
+ * Selected with {@code retailpulse.inventory.mode}: {@code database} (default) decrements the
+ * product rows directly, {@code sharded} decides in memory and writes the deductions behind.
+ */
+public interface InventoryEngine {
+
+    /**
+     * Takes stock for every product, all or nothing. Must run inside the order's transaction;
+     * if that transaction rolls back, the stock is given back.
+     *
+     * @param quantities the quantity to take per product ID
+     * @throws com.ark.retailpulse.exception.InsufficientStockException if a product is missing
+     *                                                                   or does not have enough stock
+     */
+    void take(Map<Long, Integer> quantities);
+
+    /**
+     * Gives stock back, e.g. when a pending order is cancelled. Must run inside a transaction;
+     * the stock only becomes available again if that transaction commits.
+     *
+     * @param quantities the quantity to give back per product ID
+     */
+    void release(Map<Long, Integer> quantities);
+}
@@ -0,0 +1,109 @@
+package com.ark.retailpulse.service.inventory;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock of one product split across shards, in the style of {@link java.util.concurrent.atomic.LongAdder}.
+ * A take first tries to satisfy itself from a single shard with a compare-and-set, starting
+ * from the shard the calling thread maps to, so concurrent buyers mostly touch different
+ * cells. Only when no single shard holds enough does a take lock the counter, pool all
+ * shards and spread the rest evenly again.
+ */
+final class ShardedCounter {
+
+    // Cells are spaced a cache line apart so shards do not share one
+    private static final int PADDING = 8;
+
+    private final int shards;
+    private final AtomicLongArray cells;
+
+    // The stock the counter was loaded with, plus every reconciliation adjustment
+    private final AtomicLong base;
+    // Units taken by committed orders since the counter was loaded
+    private final AtomicLong committed = new AtomicLong();
+
+    ShardedCounter(int shards, long initial) {
+        this.shards = shards;
+        this.cells = new AtomicLongArray(shards * PADDING);
+        this.base = new AtomicLong(initial);
+        spread(initial);
+    }
+
+    /**
+     * Takes the quantity if the counter holds enough.
+     *
+     * @return true if the quantity was taken
+     */
+    boolean tryTake(long quantity) {
+        int home = home();
+        for (int k = 0; k < shards; k++) {
+            int index = ((home + k) % shards) * PADDING;
+            long value;
+            while ((value = cells.get(index)) >= quantity) {
+                if (cells.compareAndSet(index, value, value - quantity)) {
+                    return true;
+                }
+            }
+        }
+        return takeSlow(quantity);
+    }
+
+    /**
+     * Adds to the counter; negative to correct it downwards.
+     */
+    void add(long quantity) {
+        cells.addAndGet(home() * PADDING, quantity);
+    }
+
+    /**
+     * Records that a take was committed.
+     */
+    void commit(long quantity) {
+        committed.addAndGet(quantity);
+    }
+
+    long committed() {
+        return committed.get();
+    }
+
+    /**
+     * Corrects the counter to the stock the database reports. Since the cells, the in-flight
+     * takes and the committed takes always add up to the base, the cells need not be read.
+     * Reading the committed count before the database means a take committing in between
+     * can only make the correction too low, never oversell, and the next run repairs it.
+     *
+     * @param available       the available stock per the database
+     * @param committedBefore the committed count read before querying the database
+     * @return the applied correction
+     */
+    synchronized long reconcile(long available, long committedBefore) {
+        long delta = available + committedBefore - base.get();
+        if (delta != 0) {
+            base.addAndGet(delta);
+            add(delta);
+        }
+        return delta;
+    }
+
+    private synchronized boolean takeSlow(long quantity) {
+        long total = 0;
+        for (int i = 0; i < shards; i++) {
+            total += cells.getAndSet(i * PADDING, 0);
+        }
+        boolean taken = total >= quantity;
+        spread(taken ? total - quantity : total);
+        return taken;
+    }
+
+    private void spread(long total) {
+        long share = total / shards;
+        for (int i = 0; i < shards; i++) {
+            cells.addAndGet(i * PADDING, i == 0 ? share + total % shards : share);
+        }
+    }
+
+    private int home() {
+        return (int) (Thread.currentThread().getId() % shards);
+    }
+}
@@ -0,0 +1,286 @@
+package com.ark.retailpulse.service.inventory;
+
+import com.ark.retailpulse.exception.InsufficientStockException;
+import com.ark.retailpulse.service.product.ProductChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Array;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inventory engine that decides stock in memory so buyers of a hot product do not queue on
+ * its row lock. Each product's stock is a {@link ShardedCounter} loaded on first use. A take
+ * is recorded as an {@code inventory_journal} row in the order's transaction, so a committed
+ * order survives a crash even before its deduction reaches the product row; a flusher folds
+ * the journal into the product quantities in batches and announces each product it changed
+ * with a {@link ProductChangedEvent}. Counters are reconciled against the database
+ * periodically and after product updates, which picks up restocks.
+ * <p>
+ * The counters are per node, so this mode assumes a single node takes stock.
+ */
+@Component
+@ConditionalOnProperty(name = "retailpulse.inventory.mode", havingValue = "sharded")
+public class ShardedInventoryEngine implements InventoryEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShardedInventoryEngine.class);
+
+    // Stock still available: the product quantity minus committed deductions not flushed yet
+    private static final String SELECT_AVAILABLE =
+            "SELECT p.id, p.quantity - COALESCE((SELECT SUM(j.quantity) FROM inventory_journal j WHERE j.product_id = p.id), 0) " +
+            "FROM product p WHERE p.id IN (:ids)";
+    private static final String INSERT_JOURNAL =
+            "INSERT INTO inventory_journal (product_id, quantity, created_at) VALUES (?, ?, CURRENT_TIMESTAMP)";
+    // Moves one batch of journal rows into the product quantities in a single statement;
+    // returns the number of journal rows and the IDs of the products they changed
+    private static final String FLUSH_JOURNAL =
+            "WITH j AS (DELETE FROM inventory_journal WHERE id IN " +
+            "(SELECT id FROM inventory_journal ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) RETURNING product_id, quantity), " +
+            "s AS (SELECT product_id, SUM(quantity) AS quantity FROM j GROUP BY product_id), " +
+            "u AS (UPDATE product SET quantity = product.quantity - s.quantity, version = product.version + 1 " +
+            "FROM s WHERE product.id = s.product_id RETURNING product.id) " +
+            "SELECT (SELECT count(*) FROM j), (SELECT array_agg(id) FROM u)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int shards;
+    private final int flushBatchSize;
+
+    private final Map<Long, ShardedCounter> counters = new ConcurrentHashMap<>();
+
+    private final Counter rejected;
+    private final Counter adjustments;
+    private final Timer flushTimer;
+
+    public ShardedInventoryEngine(JdbcTemplate jdbcTemplate,
+                                  NamedParameterJdbcTemplate namedJdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  ApplicationEventPublisher eventPublisher,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${retailpulse.inventory.shards:0}") int shards,
+                                  @Value("${retailpulse.inventory.flush-batch-size:5000}") int flushBatchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.shards = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        this.flushBatchSize = flushBatchSize;
+        this.rejected = Counter.builder("inventory.takes.rejected").register(meterRegistry);
+        this.adjustments = Counter.builder("inventory.reconciled.adjustments").register(meterRegistry);
+        this.flushTimer = Timer.builder("inventory.journal.flush").register(meterRegistry);
+        Gauge.builder("inventory.counters", counters, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Takes from the counters and journals the deduction in the caller's transaction. The
+     * counters are given back if the transaction rolls back.
+     */
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void take(Map<Long, Integer> quantities) {
+        Map<ShardedCounter, Integer> taken = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> entry : new TreeMap<>(quantities).entrySet()) {
+            ShardedCounter counter = counter(entry.getKey());
+            if (counter == null || !counter.tryTake(entry.getValue())) {
+                taken.forEach(ShardedCounter::add);
+                rejected.increment();
+                throw new InsufficientStockException("Insufficient stock for product: " + entry.getKey());
+            }
+            taken.put(counter, entry.getValue());
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                taken.forEach(status == STATUS_COMMITTED ? ShardedCounter::commit : ShardedCounter::add);
+            }
+        });
+
+        List<Object[]> rows = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> rows.add(new Object[]{productId, quantity}));
+        jdbcTemplate.batchUpdate(INSERT_JOURNAL, rows);
+    }
+
+    /**
+     * Journals a negative deduction in the caller's transaction. The committed count drops
+     * just before commit and the units reach the counter just after, so reconciliation can
+     * never count them twice.
+     */
+    @Override
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void release(Map<Long, Integer> quantities) {
+        Map<ShardedCounter, Integer> released = new LinkedHashMap<>();
+        quantities.forEach((productId, quantity) -> {
+            ShardedCounter counter = counters.get(productId);
+            if (counter != null) {
+                released.put(counter, quantity);
+            }
+        });
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean committing;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                committing = true;
+                released.forEach((counter, quantity) -> counter.commit(-quantity));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    released.forEach(ShardedCounter::add);
+                } else if (committing) {
+                    released.forEach(ShardedCounter::commit);
+                }
+            }
+        });
+
+        List<Object[]> rows = new ArrayList<>();
+        quantities.forEach((productId, quantity) -> rows.add(new Object[]{productId, -quantity}));
+        jdbcTemplate.batchUpdate(INSERT_JOURNAL, rows);
+    }
+
+    /**
+     * Applies journalled deductions to the product rows in batches. The changed products are
+     * announced inside each batch's transaction, so listeners see them once it commits.
+     */
+    @Scheduled(fixedDelayString = "${retailpulse.inventory.flush-interval:1000}")
+    public void flush() {
+        long flushed;
+        do {
+            flushed = flushTimer.record(() -> transactionTemplate.execute(status -> flushBatch()));
+        } while (flushed == flushBatchSize);
+    }
+
+    private long flushBatch() {
+        return jdbcTemplate.queryForObject(FLUSH_JOURNAL, (rs, rowNum) -> {
+            long entries = rs.getLong(1);
+            Array changed = rs.getArray(2);
+            if (changed != null) {
+                Object[] productIds = (Object[]) changed.getArray();
+                logger.debug("Flushed {} journal entries into {} products", entries, productIds.length);
+                for (Object productId : productIds) {
+                    eventPublisher.publishEvent(new ProductChangedEvent(((Number) productId).longValue(),
+                            ProductChangedEvent.Type.UPDATED));
+                }
+            }
+            return entries;
+        }, flushBatchSize);
+    }
+
+    /**
+     * Applies whatever a previous run left in the journal.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void flushOnStartup() {
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Failed to flush the inventory journal on shutdown: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Corrects every counter to the stock the database holds, e.g. after a restock.
+     */
+    @Scheduled(fixedDelayString = "${retailpulse.inventory.reconcile-interval:60000}")
+    public void reconcile() {
+        reconcile(counters.keySet());
+    }
+
+    /**
+     * Reconciles a product's counter once a change to it commits, and drops the counter of a
+     * deleted product.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            counters.remove(event.productId());
+        } else if (counters.containsKey(event.productId())) {
+            reconcile(Set.of(event.productId()));
+        }
+    }
+
+    private void reconcile(Set<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Long> committedBefore = new HashMap<>();
+        productIds.forEach(productId -> {
+            ShardedCounter counter = counters.get(productId);
+            if (counter != null) {
+                committedBefore.put(productId, counter.committed());
+            }
+        });
+        Map<Long, Long> available = selectAvailable(committedBefore.keySet());
+
+        committedBefore.forEach((productId, committed) -> {
+            ShardedCounter counter = counters.get(productId);
+            if (counter == null) {
+                return;
+            }
+            Long stock = available.get(productId);
+            if (stock == null) {
+                counters.remove(productId, counter);
+                return;
+            }
+            long delta = counter.reconcile(stock, committed);
+            if (delta != 0) {
+                adjustments.increment();
+                logger.info("Reconciled stock of product ID {} by {}", productId, delta);
+            }
+        });
+    }
+
+    private ShardedCounter counter(Long productId) {
+        ShardedCounter counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        Long stock = selectAvailable(Set.of(productId)).get(productId);
+        if (stock == null) {
+            return null;
+        }
+        // Another buyer may have loaded it meanwhile; keep theirs, it may already be taken from
+        return counters.computeIfAbsent(productId, id -> new ShardedCounter(shards, stock));
+    }
+
+    private Map<Long, Long> selectAvailable(Set<Long> productIds) {
+        Map<Long, Long> available = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            namedJdbcTemplate.query(SELECT_AVAILABLE, Map.of("ids", productIds),
+                    (RowCallbackHandler) rs -> available.put(rs.getLong(1), rs.getLong(2)));
+        }
+        return available;
+    }
+}
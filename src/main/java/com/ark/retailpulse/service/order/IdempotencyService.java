@@ -0,0 +1,237 @@
+package com.ark.retailpulse.service.order;
+
+import com.ark.retailpulse.dto.order.OrderDTO;
+import com.ark.retailpulse.exception.IdempotencyKeyException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Deduplicates order creation requests by their {@code Idempotency-Key} header.
+ * The first request with a key claims it with an in-flight marker; once the order is placed
+ * the marker is replaced by the response, which is replayed to every retry with the same key
+ * until the TTL runs out. A retry arriving while the first request still runs is refused
+ * rather than run twice, and a request that fails frees its key so it can be retried.
+ * <p>
+ * Keys are kept in Redis so retries landing on another node are caught too. If Redis cannot
+ * be reached, keys fall back to a bounded in-process cache, which still catches retries to
+ * the same node.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private static final String KEY_PREFIX = "idempotency:order:";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // KEYS: key; ARGV: our in-flight marker, response entry, TTL millis.
+    // Stores the response unless another request has claimed the key since our marker expired.
+    private static final RedisScript<Long> COMPLETE_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[1]) " +
+            "if current and current ~= ARGV[1] then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) " +
+            "return 1", Long.class);
+
+    // KEYS: key; ARGV: our in-flight marker
+    private static final RedisScript<Long> ABANDON_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end " +
+            "return 0", Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration inFlightTtl;
+    private final Cache<String, String> localEntries;
+
+    private final Counter replayed;
+    private final Counter rejected;
+
+    public IdempotencyService(StringRedisTemplate redisTemplate,
+                              ObjectMapper objectMapper,
+                              MeterRegistry meterRegistry,
+                              @Value("${retailpulse.idempotency.ttl:24h}") Duration ttl,
+                              @Value("${retailpulse.idempotency.in-flight-ttl:2m}") Duration inFlightTtl,
+                              @Value("${retailpulse.idempotency.local.max-size:10000}") long localMaxSize) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.inFlightTtl = inFlightTtl;
+        this.localEntries = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(ttl)
+                .build();
+        this.replayed = Counter.builder("orders.idempotency").tag("result", "replayed").register(meterRegistry);
+        this.rejected = Counter.builder("orders.idempotency").tag("result", "rejected").register(meterRegistry);
+    }
+
+    /**
+     * Claims a key for a new request, or returns the response of the request that used it.
+     *
+     * @param userId      the ID of the user; keys are scoped per user
+     * @param key         the Idempotency-Key header
+     * @param fingerprint identifies the request parameters, see {@link #fingerprint}
+     * @return a claim to complete or abandon, or the response to replay
+     * @throws IdempotencyKeyException if the key is invalid, still in flight, or was used
+     *                                 for a request with other parameters
+     */
+    public Outcome begin(Long userId, String key, String fingerprint) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IdempotencyKeyException(HttpStatus.BAD_REQUEST,
+                    "Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String storageKey = KEY_PREFIX + userId + ":" + key;
+        String marker = write(new Entry(UUID.randomUUID().toString(), fingerprint, null));
+
+        boolean local = false;
+        String existing;
+        try {
+            Boolean claimed = redisTemplate.opsForValue().setIfAbsent(storageKey, marker, inFlightTtl);
+            existing = Boolean.TRUE.equals(claimed) ? null : redisTemplate.opsForValue().get(storageKey);
+            if (existing == null && !Boolean.TRUE.equals(claimed)) {
+                // Expired between the two calls; a retry of the client will claim it
+                throw new IdempotencyKeyException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is in progress");
+            }
+        } catch (IdempotencyKeyException e) {
+            rejected.increment();
+            throw e;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to claim idempotency key in Redis, using the local store: {}", e.getMessage());
+            local = true;
+            existing = localEntries.asMap().putIfAbsent(storageKey, marker);
+        }
+
+        if (existing == null) {
+            return new Outcome(new Claim(storageKey, marker, local), null);
+        }
+        Entry entry = read(existing);
+        if (!entry.fingerprint().equals(fingerprint)) {
+            rejected.increment();
+            throw new IdempotencyKeyException(HttpStatus.UNPROCESSABLE_ENTITY,
+                    "Idempotency-Key was already used for a different request");
+        }
+        if (entry.response() == null) {
+            rejected.increment();
+            throw new IdempotencyKeyException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is in progress");
+        }
+        replayed.increment();
+        logger.info("Replaying order {} for idempotency key of user ID {}", entry.response().getId(), userId);
+        return new Outcome(null, entry.response());
+    }
+
+    /**
+     * Stores the response of a claimed request for replay.
+     *
+     * @param claim    the claim returned by {@link #begin}
+     * @param response the response to replay
+     */
+    public void complete(Claim claim, OrderDTO response) {
+        Entry marker = read(claim.marker());
+        String entry = write(new Entry(marker.token(), marker.fingerprint(), response));
+        if (claim.local()) {
+            localEntries.asMap().replace(claim.storageKey(), claim.marker(), entry);
+            return;
+        }
+        try {
+            Long stored = redisTemplate.execute(COMPLETE_SCRIPT, List.of(claim.storageKey()),
+                    claim.marker(), entry, String.valueOf(ttl.toMillis()));
+            if (stored == null || stored == 0) {
+                logger.warn("Idempotency key {} was claimed by another request before completing", claim.storageKey());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to store idempotent response in Redis, keeping it locally: {}", e.getMessage());
+            localEntries.put(claim.storageKey(), entry);
+        }
+    }
+
+    /**
+     * Frees the key of a claimed request that failed, so the client can retry it.
+     *
+     * @param claim the claim returned by {@link #begin}
+     */
+    public void abandon(Claim claim) {
+        if (claim.local()) {
+            localEntries.asMap().remove(claim.storageKey(), claim.marker());
+            return;
+        }
+        try {
+            redisTemplate.execute(ABANDON_SCRIPT, List.of(claim.storageKey()), claim.marker());
+        } catch (RuntimeException e) {
+            // The marker expires after the in-flight TTL
+            logger.warn("Failed to release idempotency key {}: {}", claim.storageKey(), e.getMessage());
+        }
+    }
+
+    /**
+     * Hashes the parameters of a request so a key reused for another request is detected.
+     *
+     * @param parts the request parameters
+     * @return a hex digest of the parameters
+     */
+    public static String fingerprint(String... parts) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (String part : parts) {
+                digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String write(Entry entry) {
+        try {
+            return objectMapper.writeValueAsString(entry);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize idempotency entry", e);
+        }
+    }
+
+    private Entry read(String value) {
+        try {
+            return objectMapper.readValue(value, Entry.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to deserialize idempotency entry", e);
+        }
+    }
+
+    /**
+     * What is stored per key: the claiming request and, once it finished, its response.
+     */
+    record Entry(String token, String fingerprint, OrderDTO response) {
+    }
+
+    /**
+     * A key claimed by a request, and where it is stored.
+     */
+    public record Claim(String storageKey, String marker, boolean local) {
+    }
+
+    /**
+     * Either a claim to run the request under, or the response of an earlier request to replay.
+     */
+    public record Outcome(Claim claim, OrderDTO replay) {
+    }
+}
@@ -0,0 +1,15 @@
+package com.ark.retailpulse.service.order;
+
+import com.ark.retailpulse.model.Order;
+
+import java.time.LocalDateTime;
+
+/**
+ * Criteria for the admin order listing and export. Null fields do not filter.
+ *
+ * @param status only orders in this status
+ * @param from   only orders created at or after this time
+ * @param to     only orders created before this time
+ */
+public record OrderFilter(Order.OrderStatus status, LocalDateTime from, LocalDateTime to) {
+}
@@ -0,0 +1,320 @@
+package com.ark.retailpulse.service.order;
+
+import com.ark.retailpulse.dto.CursorPage;
+import com.ark.retailpulse.dto.order.OrderDTO;
+import com.ark.retailpulse.dto.order.OrderItemDTO;
+import com.ark.retailpulse.exception.InvalidPageRequestException;
+import com.ark.retailpulse.model.Order;
+import com.ark.retailpulse.util.CursorUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Admin views over all orders that stay within constant memory however many orders exist.
+ * The listing is keyset-paginated, newest first, and loads the items of a page in a second
+ * query. The export streams every matching order from a forward-only cursor with a fixed
+ * fetch size straight to the output, as NDJSON (one order per line) or CSV (one line per item).
+ */
+@Service
+public class OrderReportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderReportService.class);
+
+    private static final String ORDER_COLUMNS =
+            "o.id, o.user_id, o.address, o.phone_number, o.status, o.created_at, o.amount";
+    private static final String SELECT_ITEMS =
+            "SELECT oi.order_id, oi.id, oi.product_id, oi.quantity, oi.price FROM order_item oi " +
+            "WHERE oi.order_id IN (:orderIds) ORDER BY oi.order_id, oi.id";
+    private static final String CSV_HEADER =
+            "order_id,user_id,status,created_at,amount,address,phone_number,item_id,product_id,quantity,price";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final CursorUtil cursorUtil;
+    private final ObjectMapper objectMapper;
+
+    public OrderReportService(NamedParameterJdbcTemplate namedJdbcTemplate,
+                              DataSource dataSource,
+                              PlatformTransactionManager transactionManager,
+                              CursorUtil cursorUtil,
+                              ObjectMapper objectMapper,
+                              @Value("${retailpulse.orders.export.fetch-size:500}") int fetchSize) {
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        JdbcTemplate streaming = new JdbcTemplate(dataSource);
+        // PostgreSQL only uses a server-side cursor with a fetch size inside a transaction
+        streaming.setFetchSize(fetchSize);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streaming);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.cursorUtil = cursorUtil;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Lists orders newest first with keyset pagination.
+     *
+     * @param filter the listing criteria
+     * @param cursor the cursor returned with the previous slice, or blank for the first slice
+     * @param size   the maximum number of orders to return
+     * @return the next slice of orders and the cursor to continue from
+     */
+    public CursorPage<OrderDTO> listOrders(OrderFilter filter, String cursor, int size) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder("SELECT ").append(ORDER_COLUMNS).append(" FROM orders o WHERE 1 = 1");
+        appendFilter(sql, params, filter);
+        if (cursor != null && !cursor.isBlank()) {
+            sql.append(" AND o.id < :afterId");
+            params.addValue("afterId", parseId(cursorUtil.decode(cursor, 1)[0]));
+        }
+        // Fetch one extra row to learn whether another slice follows
+        sql.append(" ORDER BY o.id DESC LIMIT :limit");
+        params.addValue("limit", size + 1);
+
+        List<OrderDTO> rows = namedJdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> mapOrder(rs));
+        boolean hasNext = rows.size() > size;
+        List<OrderDTO> items = hasNext ? new ArrayList<>(rows.subList(0, size)) : rows;
+        loadItems(items);
+        String nextCursor = hasNext ? cursorUtil.encode(String.valueOf(items.get(items.size() - 1).getId())) : null;
+        return new CursorPage<>(items, nextCursor, hasNext);
+    }
+
+    /**
+     * Lists every matching order with its items, oldest first, read with a single query.
+     * Holds the whole result in memory; prefer {@link #listOrders} or the exports for large views.
+     *
+     * @param filter the listing criteria
+     * @return all matching orders
+     */
+    public List<OrderDTO> listAllOrders(OrderFilter filter) {
+        List<OrderDTO> orders = new ArrayList<>();
+        export(filter, new OrderExporter() {
+            @Override
+            void write(OrderDTO order) {
+                orders.add(order);
+            }
+        });
+        return orders;
+    }
+
+    /**
+     * Writes every matching order to the output as one JSON document per line, oldest first.
+     *
+     * @param filter the export criteria
+     * @param output the stream to write to; left open
+     * @return the number of exported orders
+     */
+    public long exportNdjson(OrderFilter filter, OutputStream output) {
+        return export(filter, new OrderExporter() {
+            @Override
+            void write(OrderDTO order) throws IOException {
+                output.write(objectMapper.writeValueAsBytes(order));
+                output.write('\n');
+            }
+        });
+    }
+
+    /**
+     * Writes every matching order item to the output as CSV, oldest order first. Orders
+     * without items get a single line with empty item columns.
+     *
+     * @param filter the export criteria
+     * @param output the stream to write to; left open
+     * @return the number of exported orders
+     */
+    public long exportCsv(OrderFilter filter, OutputStream output) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        return export(filter, new Exporter() {
+            private long lastOrderId = -1;
+            private long count;
+
+            @Override
+            public void start() throws IOException {
+                writer.write(CSV_HEADER);
+                writer.write('\n');
+            }
+
+            @Override
+            public void row(ResultSet rs) throws SQLException, IOException {
+                if (rs.getLong(1) != lastOrderId) {
+                    lastOrderId = rs.getLong(1);
+                    count++;
+                }
+                for (int column = 1; column <= 11; column++) {
+                    if (column > 1) {
+                        writer.write(',');
+                    }
+                    writer.write(csv(rs.getString(column)));
+                }
+                writer.write('\n');
+            }
+
+            @Override
+            public long finish() throws IOException {
+                writer.flush();
+                return count;
+            }
+        });
+    }
+
+    private long export(OrderFilter filter, Exporter exporter) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder("SELECT ").append(ORDER_COLUMNS)
+                .append(", oi.id, oi.product_id, oi.quantity, oi.price FROM orders o ")
+                .append("LEFT JOIN order_item oi ON oi.order_id = o.id WHERE 1 = 1");
+        appendFilter(sql, params, filter);
+        sql.append(" ORDER BY o.id, oi.id");
+
+        long start = System.currentTimeMillis();
+        Long count = readOnlyTransaction.execute(status -> {
+            try {
+                exporter.start();
+                streamingJdbcTemplate.query(sql.toString(), params, (RowCallbackHandler) rs -> {
+                    try {
+                        exporter.row(rs);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                return exporter.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        logger.info("Exported {} orders in {} ms", count, System.currentTimeMillis() - start);
+        return count;
+    }
+
+    private void appendFilter(StringBuilder sql, MapSqlParameterSource params, OrderFilter filter) {
+        if (filter.status() != null) {
+            sql.append(" AND o.status = :status");
+            params.addValue("status", filter.status().name());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND o.created_at >= :from");
+            params.addValue("from", Timestamp.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND o.created_at < :to");
+            params.addValue("to", Timestamp.valueOf(filter.to()));
+        }
+    }
+
+    private void loadItems(List<OrderDTO> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        Map<Long, OrderDTO> byId = new HashMap<>();
+        orders.forEach(order -> {
+            order.setOrderItems(new ArrayList<>());
+            byId.put(order.getId(), order);
+        });
+        namedJdbcTemplate.query(SELECT_ITEMS, Map.of("orderIds", byId.keySet()),
+                (RowCallbackHandler) rs -> byId.get(rs.getLong(1)).getOrderItems().add(mapItem(rs, 2)));
+    }
+
+    private static OrderDTO mapOrder(ResultSet rs) throws SQLException {
+        OrderDTO order = new OrderDTO();
+        order.setId(rs.getLong(1));
+        order.setUserId(rs.getLong(2));
+        order.setAddress(rs.getString(3));
+        order.setPhoneNumber(rs.getString(4));
+        String status = rs.getString(5);
+        order.setStatus(status == null ? null : Order.OrderStatus.valueOf(status));
+        Timestamp createdAt = rs.getTimestamp(6);
+        order.setCreatedAt(createdAt == null ? null : createdAt.toLocalDateTime());
+        return order;
+    }
+
+    private static OrderItemDTO mapItem(ResultSet rs, int firstColumn) throws SQLException {
+        OrderItemDTO item = new OrderItemDTO();
+        item.setId(rs.getLong(firstColumn));
+        item.setProductId(rs.getLong(firstColumn + 1));
+        item.setQuantity(rs.getInt(firstColumn + 2));
+        item.setPrice(rs.getBigDecimal(firstColumn + 3));
+        return item;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private Long parseId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Malformed pagination cursor");
+        }
+    }
+
+    /**
+     * Turns the rows of the export query, ordered by order and item, into output.
+     */
+    private interface Exporter {
+        default void start() throws IOException {
+        }
+
+        void row(ResultSet rs) throws SQLException, IOException;
+
+        long finish() throws IOException;
+    }
+
+    /**
+     * Assembles the rows of the export query into one order DTO, with its items, at a time.
+     */
+    private abstract static class OrderExporter implements Exporter {
+        private OrderDTO current;
+        private long count;
+
+        abstract void write(OrderDTO order) throws IOException;
+
+        @Override
+        public void row(ResultSet rs) throws SQLException, IOException {
+            long orderId = rs.getLong(1);
+            if (current == null || current.getId() != orderId) {
+                flush();
+                current = mapOrder(rs);
+                current.setOrderItems(new ArrayList<>());
+            }
+            if (rs.getObject(8) != null) {
+                current.getOrderItems().add(mapItem(rs, 8));
+            }
+        }
+
+        @Override
+        public long finish() throws IOException {
+            flush();
+            return count;
+        }
+
+        private void flush() throws IOException {
+            if (current != null) {
+                write(current);
+                count++;
+            }
+        }
+    }
+}
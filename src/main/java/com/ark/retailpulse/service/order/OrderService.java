@@ -1,6 +1,8 @@
 package com.ark.retailpulse.service.order;
 
+import com.ark.retailpulse.dto.CursorPage;
 import com.ark.retailpulse.dto.order.OrderDTO;
+import com.ark.retailpulse.exception.InvalidPageRequestException;
 import com.ark.retailpulse.exception.ResourceNotFoundException;
 import com.ark.retailpulse.helper.order.OrderItemHelper;
 import com.ark.retailpulse.mapper.CartMapper;
@@ -8,19 +10,27 @@ import com.ark.retailpulse.mapper.OrderMapper;
 import com.ark.retailpulse.model.*;
 import com.ark.retailpulse.repository.*;
 import com.ark.retailpulse.response.CartDtoDetails.CartDtoDetails;
+import com.ark.retailpulse.response.CartDtoDetails.CartItemsDetails;
 import com.ark.retailpulse.service.cart.CartService;
-import com.ark.retailpulse.service.emaiil.EmailService;
+import com.ark.retailpulse.service.cart.StockReservationService;
+import com.ark.retailpulse.service.inventory.InventoryEngine;
+import com.ark.retailpulse.service.outbox.OutboxService;
+import com.ark.retailpulse.util.CursorUtil;
 import com.razorpay.RazorpayException;
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.mail.MailException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -29,16 +39,61 @@ public class OrderService {
     private final Logger logger = LoggerFactory.getLogger(OrderService.class);
     private final OrderRepository orderRepository;
     private final CartService cartService;
+    private final StockReservationService stockReservationService;
     private final UserRepository userRepository;
-    private final EmailService emailService;
+    private final OutboxService outboxService;
+    private final IdempotencyService idempotencyService;
     private final OrderMapper orderMapper;
     private final CartMapper cartMapper;
     private final PaymentService paymentService;
     private final OrderItemHelper orderItemHelper;
-    private final CartRepository cartRepository;
+    private final InventoryEngine inventoryEngine;
+    private final TransactionTemplate transactionTemplate;
+    private final CursorUtil cursorUtil;
+
+    @Value("${retailpulse.checkout.pending-timeout:15m}")
+    private Duration pendingTimeout;
 
     /**
-     * Creates a new order for the given user.
+     * Creates a new order unless a request with the same idempotency key already did, in
+     * which case that order is returned again without calling the gateway or taking stock.
+     *
+     * @param userId         ID of the user placing the order.
+     * @param address        Delivery address for the order.
+     * @param phoneNumber    Contact number for the order.
+     * @param idempotencyKey Client-chosen key identifying the request, or null to always create.
+     * @return OrderDTO containing the created or previously created order details.
+     * @throws RazorpayException If there is an error creating the Razorpay order.
+     */
+    public OrderDTO createOrder(Long userId, String address, String phoneNumber, String idempotencyKey) throws RazorpayException {
+        if (idempotencyKey == null) {
+            return createOrder(userId, address, phoneNumber);
+        }
+        IdempotencyService.Outcome outcome = idempotencyService.begin(userId, idempotencyKey,
+                IdempotencyService.fingerprint(address, phoneNumber));
+        if (outcome.replay() != null) {
+            return outcome.replay();
+        }
+        OrderDTO order;
+        try {
+            order = createOrder(userId, address, phoneNumber);
+        } catch (RazorpayException | RuntimeException e) {
+            idempotencyService.abandon(outcome.claim());
+            throw e;
+        }
+        idempotencyService.complete(outcome.claim(), order);
+        return order;
+    }
+
+    /**
+     * Creates a new order for the given user, in three phases so no database connection or
+     * row lock is held while the payment gateway is called:
+     * <ol>
+     *     <li>a short transaction takes the stock and saves the order as PENDING,</li>
+     *     <li>the Razorpay order is created outside any transaction,</li>
+     *     <li>a short transaction confirms the order, clears the cart and queues the confirmation email.</li>
+     * </ol>
+     * If the gateway call or the confirmation fails, the order is cancelled and its stock given back.
      *
      * @param userId      ID of the user placing the order.
      * @param address     Delivery address for the order.
@@ -46,10 +101,76 @@ public class OrderService {
      * @return OrderDTO containing the created order details.
      * @throws RazorpayException If there is an error creating the Razorpay order.
      */
-    @Transactional
     public OrderDTO createOrder(Long userId, String address, String phoneNumber) throws RazorpayException {
         logger.info("Starting order creation for user ID: {}", userId);
 
+        Order pending = transactionTemplate.execute(status -> placePendingOrder(userId, address, phoneNumber));
+        logger.info("Pending order {} saved for user ID: {}", pending.getId(), userId);
+
+        // Create Razorpay order; no transaction is open here
+        String razorpayOrderId;
+        try {
+            com.razorpay.Order razorpayOrder = paymentService.createRazorpayOrder(pending.getAmount(), "order_receipt_" + pending.getId());
+            razorpayOrderId = razorpayOrder.get("id");
+            logger.info("Razorpay order created with ID: {}", razorpayOrderId);
+        } catch (RazorpayException | RuntimeException e) {
+            cancelPendingOrder(pending.getId());
+            throw e;
+        }
+
+        try {
+            return transactionTemplate.execute(status -> confirmOrder(pending.getId(), razorpayOrderId));
+        } catch (RuntimeException e) {
+            logger.error("Failed to confirm order {} with Razorpay order {}", pending.getId(), razorpayOrderId, e);
+            cancelPendingOrder(pending.getId());
+            throw e;
+        }
+    }
+
+    /**
+     * Cancels a PENDING order and gives its stock back. Does nothing if the order has moved on.
+     * The status is switched by a conditional update before the stock is released, so when
+     * several nodes expire the same order, or a late confirmation races the expiry, only the
+     * caller that wins the update releases the stock.
+     *
+     * @param orderId ID of the order.
+     */
+    public void cancelPendingOrder(Long orderId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (orderRepository.cancelIfPending(orderId) == 0) {
+                    return;
+                }
+                Order order = orderRepository.findById(orderId)
+                        .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+                inventoryEngine.release(order.getItems().stream()
+                        .collect(Collectors.toMap(item -> item.getProduct().getId(), OrderItem::getQuantity, Integer::sum)));
+                logger.info("Pending order {} cancelled and its stock released", orderId);
+            });
+        } catch (RuntimeException e) {
+            // Left PENDING; the periodic expiry retries
+            logger.error("Failed to cancel pending order {}", orderId, e);
+        }
+    }
+
+    /**
+     * Cancels orders left PENDING by a checkout that never finished, e.g. after a crash.
+     */
+    @Scheduled(initialDelayString = "${retailpulse.checkout.pending-expiry-interval:60000}",
+            fixedDelayString = "${retailpulse.checkout.pending-expiry-interval:60000}")
+    public void expirePendingOrders() {
+        List<Long> orderIds = orderRepository.findIdsByStatusAndCreatedAtBefore(
+                Order.OrderStatus.PENDING, LocalDateTime.now().minus(pendingTimeout));
+        orderIds.forEach(this::cancelPendingOrder);
+        if (!orderIds.isEmpty()) {
+            logger.info("Expired {} stale pending orders", orderIds.size());
+        }
+    }
+
+    /**
+     * Phase one of checkout: validates the cart, takes the stock and saves a PENDING order.
+     */
+    private Order placePendingOrder(Long userId, String address, String phoneNumber) {
         // Fetch and validate user
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found"));
@@ -77,61 +198,56 @@ public class OrderService {
             }
         });
 
-        // Calculate total order amount
-        BigDecimal totalAmount = cart.getItems().stream()
-                .filter(item -> item.getProduct() != null && item.getProduct().getPrice() != null)
-                .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        // Use the maintained cart subtotal unless a price moved since it was added;
+        // order items are charged at current prices, so the amount is recomputed then
+        boolean priceChanged = cartDTO.getItems().stream().anyMatch(CartItemsDetails::isPriceChanged);
+        BigDecimal totalAmount = cartDTO.getSubtotal() != null && !priceChanged
+                ? cartDTO.getSubtotal()
+                : cart.getItems().stream()
+                        .filter(item -> item.getProduct() != null && item.getProduct().getPrice() != null)
+                        .map(item -> item.getProduct().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                        .reduce(BigDecimal.ZERO, BigDecimal::add);
         logger.info("Total order amount calculated for user ID {}: {}", userId, totalAmount);
 
-        // Create Razorpay order
-        com.razorpay.Order razorpayOrder = paymentService.createRazorpayOrder(totalAmount, "order_receipt_" + System.currentTimeMillis());
-        logger.info("Razorpay order created with ID: ");
+        // Check stock against other shoppers' holds before taking it
+        stockReservationService.ensureAvailable(userId, cartDTO.getItems().stream()
+                .collect(Collectors.toMap(item -> item.getProduct().getId(), CartItemsDetails::getQuantity, Integer::sum)));
 
         // Create and save order
         Order order = new Order();
         order.setUser(user);
         order.setAddress(address);
         order.setPhoneNumber(phoneNumber);
-        order.setStatus(Order.OrderStatus.PREPARING);
+        order.setStatus(Order.OrderStatus.PENDING);
         order.setCreatedAt(LocalDateTime.now());
-        order.setRazorpayOrderId(razorpayOrder.get("id"));
         order.setAmount(totalAmount);
 
         List<OrderItem> orderItems = orderItemHelper.createOrderItems(cart, order);
         order.setItems(orderItems);
+        return orderRepository.save(order);
+    }
 
-        Order savedOrder = orderRepository.save(order);
-        logger.info("Order saved for user ID: {} with Order ID: {}", userId, savedOrder.getId());
-
-        // Send order confirmation email
-        try {
-            emailService.sendOrderConfirmation(savedOrder);
-            logger.info("Order confirmation email sent for order ID: {}", savedOrder.getId());
-        } catch (MailException e) {
-            logger.error("Failed to send order confirmation email for order ID: {}", savedOrder.getId(), e);
+    /**
+     * Phase three of checkout: attaches the payment order, clears the cart and queues the
+     * confirmation email, which is only sent if this commits.
+     */
+    private OrderDTO confirmOrder(Long orderId, String razorpayOrderId) {
+        if (orderRepository.confirmIfPending(orderId, razorpayOrderId) == 0) {
+            // Expired while the gateway was slow; its stock is already back
+            throw new IllegalStateException("Order " + orderId + " is no longer pending");
         }
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new ResourceNotFoundException("Order not found with id: " + orderId));
+        logger.info("Order {} confirmed", orderId);
 
-        // Clear user's cart
-        Cart userCart = cartRepository.findByUserId(userId)
-                .orElseThrow(() -> new ResourceNotFoundException("Cart not found for user"));
-        userCart.getItems().clear();
-        cartRepository.save(userCart);
-        logger.info("Cart cleared for user ID: {}", userId);
+        // Clear user's cart through the configured cart store; its holds are released on commit
+        cartService.clearCart(order.getUser().getId());
+        logger.info("Cart cleared for user ID: {}", order.getUser().getId());
 
+        outboxService.orderConfirmation(orderId);
         return orderMapper.toDTO(order);
     }
 
-    /**
-     * Fetches all orders.
-     *
-     * @return List of all OrderDTOs.
-     */
-    public List<OrderDTO> getAllOrders() {
-        logger.info("Fetching all orders");
-        return orderMapper.toDTOs(orderRepository.findAll());
-    }
-
     /**
      * Fetches orders for a specific user.
      *
@@ -143,6 +259,35 @@ public class OrderService {
         return orderMapper.toDTOs(orderRepository.findByUserId(userId));
     }
 
+    /**
+     * Fetches a user's orders with keyset pagination, newest first, in two queries whatever
+     * the page size: one for the IDs of the page, one for those orders with their items.
+     *
+     * @param userId ID of the user.
+     * @param cursor The cursor returned with the previous slice, or blank for the first slice.
+     * @param size   The maximum number of orders to return.
+     * @return The next slice of the user's orders and the cursor to continue from.
+     */
+    public CursorPage<OrderDTO> getUserOrders(Long userId, String cursor, int size) {
+        logger.info("Fetching orders for user ID: {} with keyset pagination: page size = {}", userId, size);
+        // Fetch one extra ID to learn whether another slice follows
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<Long> ids;
+        if (cursor == null || cursor.isBlank()) {
+            ids = orderRepository.findFirstPageIdsByUserId(userId, limit);
+        } else {
+            ids = orderRepository.findPageIdsByUserIdAfter(userId, parseId(cursorUtil.decode(cursor, 1)[0]), limit);
+        }
+
+        boolean hasNext = ids.size() > size;
+        List<Long> pageIds = hasNext ? ids.subList(0, size) : ids;
+        List<OrderDTO> items = pageIds.isEmpty()
+                ? List.of()
+                : orderMapper.toDTOs(orderRepository.findWithItemsByIdIn(pageIds));
+        String nextCursor = hasNext ? cursorUtil.encode(String.valueOf(pageIds.get(pageIds.size() - 1))) : null;
+        return new CursorPage<>(items, nextCursor, hasNext);
+    }
+
     /**
      * Updates the status of an order.
      *
@@ -171,4 +316,12 @@ public class OrderService {
         logger.info("Verifying payment for Razorpay Order ID: {}", razorpayOrderId);
         return paymentService.verifyPaymentSignature(razorpayOrderId, razorpayPaymentId, razorpaySignature);
     }
+
+    private Long parseId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Malformed pagination cursor");
+        }
+    }
 }
@@ -0,0 +1,215 @@
+package com.ark.retailpulse.service.outbox;
+
+import com.ark.retailpulse.model.Order;
+import com.ark.retailpulse.model.Otp;
+import com.ark.retailpulse.model.OutboxMessage;
+import com.ark.retailpulse.repository.OrderRepository;
+import com.ark.retailpulse.repository.OtpRepository;
+import com.ark.retailpulse.service.emaiil.EmailService;
+import com.ark.retailpulse.service.sms.TwilioOtpService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drains the outbox in the background. Each round claims a batch of due messages in a short
+ * transaction by pushing their next attempt past a lease, sends them with no transaction or
+ * connection held, and records the outcomes in one batch. A message that fails is retried with
+ * exponential backoff until it runs out of attempts. If the node dies mid-batch, the lease
+ * expires and another round sends the rest again, so delivery is at least once.
+ */
+@Service
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    // Leases one batch of due messages, skipping any another dispatcher is claiming
+    private static final String CLAIM_BATCH =
+            "UPDATE outbox_message SET next_attempt_at = ? WHERE id IN " +
+            "(SELECT id FROM outbox_message WHERE status = 'PENDING' AND next_attempt_at <= CURRENT_TIMESTAMP " +
+            "ORDER BY id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, type, subject_id, attempts";
+    private static final String MARK_SENT =
+            "UPDATE outbox_message SET status = 'SENT', attempts = attempts + 1, sent_at = CURRENT_TIMESTAMP, last_error = NULL WHERE id = ?";
+    private static final String MARK_FAILED =
+            "UPDATE outbox_message SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ? WHERE id = ?";
+    private static final String PURGE_SENT =
+            "DELETE FROM outbox_message WHERE status = 'SENT' AND sent_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderRepository orderRepository;
+    private final OtpRepository otpRepository;
+    private final EmailService emailService;
+    private final TwilioOtpService twilioOtpService;
+    private final int batchSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Duration retention;
+
+    private final Counter sent;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer dispatchTimer;
+
+    public OutboxDispatcher(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            OrderRepository orderRepository,
+                            OtpRepository otpRepository,
+                            EmailService emailService,
+                            TwilioOtpService twilioOtpService,
+                            MeterRegistry meterRegistry,
+                            @Value("${retailpulse.outbox.batch-size:100}") int batchSize,
+                            @Value("${retailpulse.outbox.lease:5m}") Duration lease,
+                            @Value("${retailpulse.outbox.max-attempts:8}") int maxAttempts,
+                            @Value("${retailpulse.outbox.backoff:5s}") Duration backoff,
+                            @Value("${retailpulse.outbox.max-backoff:30m}") Duration maxBackoff,
+                            @Value("${retailpulse.outbox.retention:7d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.orderRepository = orderRepository;
+        this.otpRepository = otpRepository;
+        this.emailService = emailService;
+        this.twilioOtpService = twilioOtpService;
+        this.batchSize = batchSize;
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.retention = retention;
+        this.sent = Counter.builder("outbox.messages").tag("result", "sent").register(meterRegistry);
+        this.retried = Counter.builder("outbox.messages").tag("result", "retried").register(meterRegistry);
+        this.failed = Counter.builder("outbox.messages").tag("result", "failed").register(meterRegistry);
+        this.dispatchTimer = Timer.builder("outbox.dispatch").register(meterRegistry);
+    }
+
+    /**
+     * Sends due messages until a batch comes back short.
+     */
+    @Scheduled(fixedDelayString = "${retailpulse.outbox.poll-interval:1000}")
+    public void dispatch() {
+        int claimed;
+        do {
+            claimed = dispatchTimer.record(this::dispatchBatch);
+        } while (claimed == batchSize);
+    }
+
+    /**
+     * Deletes sent messages once they are past the retention period.
+     */
+    @Scheduled(cron = "${retailpulse.outbox.purge-cron:0 15 4 * * *}")
+    public void purgeSent() {
+        int purged = jdbcTemplate.update(PURGE_SENT, Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+        logger.info("Purged {} sent outbox messages", purged);
+    }
+
+    private int dispatchBatch() {
+        Timestamp leasedUntil = Timestamp.valueOf(LocalDateTime.now().plus(lease));
+        List<Claimed> batch = transactionTemplate.execute(status -> jdbcTemplate.query(CLAIM_BATCH,
+                (rs, rowNum) -> new Claimed(rs.getLong(1), OutboxMessage.Type.valueOf(rs.getString(2)),
+                        rs.getLong(3), rs.getInt(4)),
+                leasedUntil, batchSize));
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> delivered = new ArrayList<>();
+        List<Object[]> undelivered = new ArrayList<>();
+        for (Claimed message : batch) {
+            try {
+                send(message);
+                delivered.add(new Object[]{message.id()});
+                sent.increment();
+            } catch (RuntimeException e) {
+                int attempts = message.attempts() + 1;
+                boolean giveUp = attempts >= maxAttempts || e instanceof SubjectNotFoundException;
+                OutboxMessage.Status status = giveUp ? OutboxMessage.Status.FAILED : OutboxMessage.Status.PENDING;
+                Timestamp nextAttempt = Timestamp.valueOf(LocalDateTime.now().plus(backoff(attempts)));
+                undelivered.add(new Object[]{status.name(), attempts, nextAttempt, truncate(e.getMessage()), message.id()});
+                (giveUp ? failed : retried).increment();
+                if (giveUp) {
+                    logger.error("Giving up on outbox message {} ({} for ID {}) after {} attempts",
+                            message.id(), message.type(), message.subjectId(), attempts, e);
+                } else {
+                    logger.warn("Outbox message {} ({} for ID {}) failed, retrying at {}: {}",
+                            message.id(), message.type(), message.subjectId(), nextAttempt, e.getMessage());
+                }
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!delivered.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_SENT, delivered);
+            }
+            if (!undelivered.isEmpty()) {
+                jdbcTemplate.batchUpdate(MARK_FAILED, undelivered);
+            }
+        });
+        logger.debug("Dispatched {} outbox messages, {} failed", delivered.size(), undelivered.size());
+        return batch.size();
+    }
+
+    /**
+     * Renders a message from the current state of its subject and hands it to the provider.
+     */
+    private void send(Claimed message) {
+        switch (message.type()) {
+            case ORDER_CONFIRMATION -> {
+                Order order = orderRepository.findById(message.subjectId())
+                        .orElseThrow(() -> new SubjectNotFoundException("Order not found with id: " + message.subjectId()));
+                emailService.sendOrderConfirmation(order);
+            }
+            case EMAIL_OTP -> emailService.sendEmailConfirmationCode(otp(message.subjectId()));
+            case SMS_OTP -> twilioOtpService.sendOtp(otp(message.subjectId()));
+        }
+    }
+
+    private Otp otp(Long otpId) {
+        // The OTP may have been cleaned up after expiring; nothing is left to send then
+        return otpRepository.findById(otpId)
+                .orElseThrow(() -> new SubjectNotFoundException("Otp not found with id: " + otpId));
+    }
+
+    /**
+     * The delay before the given attempt is retried: doubling from the base, up to the cap.
+     */
+    Duration backoff(int attempts) {
+        Duration delay = backoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    private static String truncate(String error) {
+        return error == null || error.length() <= 1000 ? error : error.substring(0, 1000);
+    }
+
+    /**
+     * A message leased to this dispatcher.
+     */
+    private record Claimed(long id, OutboxMessage.Type type, Long subjectId, int attempts) {
+    }
+
+    /**
+     * The order or OTP a message is about no longer exists; retrying cannot help.
+     */
+    private static class SubjectNotFoundException extends RuntimeException {
+        SubjectNotFoundException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.ark.retailpulse.service.outbox;
+
+import com.ark.retailpulse.model.Otp;
+import com.ark.retailpulse.model.OutboxMessage;
+import com.ark.retailpulse.repository.OutboxMessageRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Records notifications in the outbox as part of the caller's transaction, so a
+ * notification is sent if and only if the change it announces commits.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxService.class);
+
+    private final OutboxMessageRepository outboxMessageRepository;
+
+    /**
+     * Queues the confirmation email of an order.
+     *
+     * @param orderId the ID of the order
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void orderConfirmation(Long orderId) {
+        enqueue(OutboxMessage.Type.ORDER_CONFIRMATION, orderId, "order-confirmation:" + orderId);
+    }
+
+    /**
+     * Queues the email carrying an OTP's current email code. Each resend is a new message.
+     *
+     * @param otp the saved OTP record
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void emailOtp(Otp otp) {
+        enqueue(OutboxMessage.Type.EMAIL_OTP, otp.getId(), "email-otp:" + otp.getId() + ":" + otp.getResendCount());
+    }
+
+    /**
+     * Queues the SMS carrying an OTP's current SMS code. Each resend is a new message.
+     *
+     * @param otp the saved OTP record
+     */
+    @Transactional(Transactional.TxType.MANDATORY)
+    public void smsOtp(Otp otp) {
+        enqueue(OutboxMessage.Type.SMS_OTP, otp.getId(), "sms-otp:" + otp.getId() + ":" + otp.getResendCount());
+    }
+
+    private void enqueue(OutboxMessage.Type type, Long subjectId, String dedupKey) {
+        if (outboxMessageRepository.enqueue(type.name(), subjectId, dedupKey) == 0) {
+            logger.info("Skipping duplicate outbox message {}", dedupKey);
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.ark.retailpulse.service.product;
 
+import com.ark.retailpulse.dto.CursorPage;
 import com.ark.retailpulse.dto.product.CommentDTO;
+import com.ark.retailpulse.exception.InvalidPageRequestException;
 import com.ark.retailpulse.exception.ResourceNotFoundException;
 import com.ark.retailpulse.mapper.CommentMapper;
 import com.ark.retailpulse.model.Comment;
@@ -9,11 +11,14 @@ import com.ark.retailpulse.model.User;
 import com.ark.retailpulse.repository.CommentRepository;
 import com.ark.retailpulse.repository.ProductRepository;
 import com.ark.retailpulse.repository.UserRepository;
+import com.ark.retailpulse.util.CursorUtil;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,15 +28,20 @@ public class CommentService {
     private final ProductRepository productRepository;
     private final UserRepository userRepository;
     private final CommentMapper commentMapper;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ProductRatingService productRatingService;
+    private final CursorUtil cursorUtil;
 
     /**
      * Adds a comment for a specific product by a user.
+     * The product's rating aggregate is updated (and versioned) in the same transaction.
      *
      * @param productId the product ID
      * @param userId    the user ID
      * @param commentDTO the comment data transfer object
      * @return the saved CommentDTO
      */
+    @Transactional
     public CommentDTO addComment(Long productId, Long userId, CommentDTO commentDTO) {
         // Retrieve the product by ID or throw exception if not found
         Product product = productRepository.findById(productId)
@@ -47,6 +57,11 @@ public class CommentService {
 
         // Save the comment and map it back to DTO
         Comment savedComment = commentRepository.save(comment);
+        // Also bumps the rating version, so ETags of responses showing the comments change
+        productRatingService.recordComment(productId, savedComment.getScore());
+
+        // Comments are part of the product details, so cached copies are now stale
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.UPDATED));
         return commentMapper.toDTO(savedComment);
 
     }
@@ -58,13 +73,43 @@ public class CommentService {
      */
     public List<CommentDTO> getCommentsByProduct(Long productId){
 
-        // Retrieve all comments for the product
-        List<Comment> comments = commentRepository.findByProductId(productId);
+        // Project straight to DTOs so neither the product nor the users are loaded
+        return commentRepository.findDTOsByProductId(productId);
+    }
+
+    /**
+     * Retrieves comments for a specific product with keyset pagination, newest first.
+     * Only the columns of the DTO are selected, so the cost of a slice is bounded by its size
+     * regardless of how many comments the product has.
+     *
+     * @param productId the product ID
+     * @param cursor    the cursor returned with the previous slice, or blank for the first slice
+     * @param size      the maximum number of comments to return
+     * @return the next slice of comments and the cursor to continue from
+     */
+    public CursorPage<CommentDTO> getCommentsByProduct(Long productId, String cursor, int size) {
+        // Fetch one extra row to learn whether another slice follows
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<CommentDTO> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = commentRepository.findFirstPageByProductId(productId, limit);
+        } else {
+            Long afterId = parseId(cursorUtil.decode(cursor, 1)[0]);
+            rows = commentRepository.findPageByProductIdAfter(productId, afterId, limit);
+        }
+
+        boolean hasNext = rows.size() > size;
+        List<CommentDTO> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorUtil.encode(String.valueOf(items.get(items.size() - 1).getId())) : null;
+        return new CursorPage<>(items, nextCursor, hasNext);
+    }
 
-        // Map each comment to DTO
-        return comments.stream()
-                .map(commentMapper::toDTO)
-                .collect(Collectors.toList());
+    private Long parseId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Malformed pagination cursor");
+        }
     }
 
 
@@ -0,0 +1,199 @@
+package com.ark.retailpulse.service.product;
+
+import com.ark.retailpulse.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Stores product images on the file system under their content hash.
+ * Uploads are streamed through a fixed-size buffer into a temporary file while being
+ * hashed, then moved to {@code <sha-256>.<ext>}; uploading the same picture twice
+ * therefore keeps a single copy and heap use does not depend on the image size.
+ * Images stored under {@code <uuid>_<name>} in the former upload directory are copied over
+ * once at startup, so product image links saved before the move keep working.
+ */
+@Service
+@Slf4j
+public class ImageStorageService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Set<String> ALLOWED_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp", "avif", "bmp");
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("[0-9a-f]{64}(\\.[a-z]+)?");
+
+    @Value("${retailpulse.images.dir:data/images}")
+    private String storageDir;
+
+    @Value("${retailpulse.images.legacy-dir:src/main/resources/images}")
+    private String legacyDir;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() throws IOException {
+        root = Paths.get(storageDir).toAbsolutePath().normalize();
+        Files.createDirectories(root);
+        log.info("Storing product images in {}", root);
+        migrateLegacyImages();
+    }
+
+    /**
+     * Copies images from the former upload directory that are not in storage yet.
+     * Names are kept as they are, so existing product image links resolve unchanged;
+     * the legacy directory itself is left untouched.
+     */
+    private void migrateLegacyImages() throws IOException {
+        if (legacyDir == null || legacyDir.isBlank()) {
+            return;
+        }
+        Path legacy = Paths.get(legacyDir).toAbsolutePath().normalize();
+        if (!Files.isDirectory(legacy) || legacy.equals(root)) {
+            return;
+        }
+        int copied = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(legacy)) {
+            for (Path file : files) {
+                String fileName = file.getFileName().toString();
+                if (!Files.isRegularFile(file) || !SAFE_NAME.matcher(fileName).matches()) {
+                    continue;
+                }
+                try {
+                    Files.copy(file, root.resolve(fileName), StandardCopyOption.COPY_ATTRIBUTES);
+                    copied++;
+                } catch (FileAlreadyExistsException e) {
+                    // Already migrated by an earlier start
+                }
+            }
+        }
+        if (copied > 0) {
+            log.info("Copied {} legacy product images from {}", copied, legacy);
+        }
+    }
+
+    /**
+     * @return the directory images are stored in
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Streams the uploaded image to storage, named after its SHA-256 content hash.
+     *
+     * @param image the uploaded image
+     * @return the stored file name
+     * @throws IOException if the image cannot be read or written
+     */
+    public String store(MultipartFile image) throws IOException {
+        MessageDigest digest = sha256();
+        Path tempFile = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            try (ReadableByteChannel in = Channels.newChannel(image.getInputStream());
+                 FileChannel out = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                while (in.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.rewind();
+                    while (buffer.hasRemaining()) {
+                        out.write(buffer);
+                    }
+                    buffer.clear();
+                }
+            }
+
+            String fileName = HexFormat.of().formatHex(digest.digest()) + extension(image.getOriginalFilename());
+            Path target = root.resolve(fileName);
+            if (Files.exists(target)) {
+                log.info("Image already stored as {}, skipping duplicate", fileName);
+                return fileName;
+            }
+            try {
+                Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+                log.info("Image saved with filename: {}", fileName);
+            } catch (FileAlreadyExistsException e) {
+                // Another upload of the same content won the race
+                log.info("Image already stored as {}, skipping duplicate", fileName);
+            }
+            return fileName;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Resolves a stored image by file name.
+     *
+     * @param fileName the stored file name
+     * @return the path of the image
+     * @throws ResourceNotFoundException if the name is invalid or no such image exists
+     */
+    public Path resolve(String fileName) {
+        if (!SAFE_NAME.matcher(fileName).matches()) {
+            throw new ResourceNotFoundException("Image not found");
+        }
+        Path path = root.resolve(fileName).normalize();
+        if (!path.startsWith(root) || !Files.isRegularFile(path)) {
+            throw new ResourceNotFoundException("Image not found");
+        }
+        return path;
+    }
+
+    /**
+     * @param fileName a stored file name
+     * @return true if the name is a content hash, i.e. the bytes behind it never change
+     */
+    public boolean isContentAddressed(String fileName) {
+        return CONTENT_ADDRESSED_NAME.matcher(fileName).matches();
+    }
+
+    /**
+     * Builds a strong ETag for a stored image: the content hash for content-addressed
+     * names, otherwise the size and modification time of the file.
+     *
+     * @param fileName the stored file name
+     * @param path     the resolved path of the image
+     * @return the quoted ETag
+     * @throws IOException if the file attributes cannot be read
+     */
+    public String etag(String fileName, Path path) throws IOException {
+        if (isContentAddressed(fileName)) {
+            int dot = fileName.indexOf('.');
+            return "\"" + (dot < 0 ? fileName : fileName.substring(0, dot)) + "\"";
+        }
+        return "\"" + Files.size(path) + "-" + Files.getLastModifiedTime(path).toMillis() + "\"";
+    }
+
+    private String extension(String originalFilename) {
+        if (originalFilename == null) {
+            return "";
+        }
+        int dot = originalFilename.lastIndexOf('.');
+        String ext = dot < 0 ? "" : originalFilename.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return ALLOWED_EXTENSIONS.contains(ext) ? "." + ext : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package com.ark.retailpulse.service.product;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.*;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Generates resized variants of stored product images on first request.
+ * Requested widths are rounded up to a fixed set of buckets so the number of variants
+ * per image stays small. Variants are kept on disk in a size-bounded LRU cache, concurrent
+ * requests for the same variant share one generation, and resizing runs on a bounded
+ * pool. Requests wait only briefly for a resize: a variant not ready within that bound is
+ * answered with the original as a provisional answer, so a burst of thumbnail requests cannot
+ * tie up request threads.
+ */
+@Service
+@Slf4j
+public class ImageVariantService {
+
+    private static final String VARIANT_DIR = "variants";
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final ImageStorageService imageStorageService;
+    private final List<Integer> widths;
+    private final long maxBytes;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    private final Counter generated;
+    private final Counter rejected;
+
+    // Access-ordered index of variant file name -> size, for LRU eviction
+    private final LinkedHashMap<String, Long> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final ConcurrentMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    // Variants found to be the original itself (undecodable, already small or too large), so they are not retried
+    private final Cache<String, Boolean> servedAsOriginal;
+    private final Duration waitTimeout;
+    private Path variantRoot;
+
+    public ImageVariantService(ImageStorageService imageStorageService,
+                               MeterRegistry meterRegistry,
+                               @Value("${retailpulse.images.variants.widths:160,320,640,1024}") List<Integer> widths,
+                               @Value("${retailpulse.images.variants.max-bytes:536870912}") long maxBytes,
+                               @Value("${retailpulse.images.variants.max-pixels:50000000}") long maxPixels,
+                               @Value("${retailpulse.images.variants.threads:2}") int threads,
+                               @Value("${retailpulse.images.variants.queue-capacity:64}") int queueCapacity,
+                               @Value("${retailpulse.images.variants.wait-timeout:300ms}") Duration waitTimeout,
+                               @Value("${retailpulse.images.variants.served-as-original-max-size:10000}") long servedAsOriginalMaxSize) {
+        this.imageStorageService = imageStorageService;
+        this.waitTimeout = waitTimeout;
+        this.servedAsOriginal = Caffeine.newBuilder().maximumSize(servedAsOriginalMaxSize).build();
+        this.widths = widths.stream().sorted().toList();
+        this.maxBytes = maxBytes;
+        this.maxPixels = maxPixels;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "image-resize-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.generated = Counter.builder("images.variants.generated").register(meterRegistry);
+        this.rejected = Counter.builder("images.variants.rejected").register(meterRegistry);
+        Gauge.builder("images.variants.bytes", this, ImageVariantService::cachedBytes).register(meterRegistry);
+    }
+
+    /**
+     * Loads the LRU index from the variants already on disk, oldest first.
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        variantRoot = imageStorageService.getRoot().resolve(VARIANT_DIR);
+        Files.createDirectories(variantRoot);
+        try (Stream<Path> files = Files.list(variantRoot)) {
+            files.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparingLong(this::lastModified))
+                    .forEach(file -> track(file.getFileName().toString(), size(file)));
+        }
+        log.info("Image variant cache holds {} files ({} bytes)", lru.size(), totalBytes);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the variant of an image for the requested width, waiting at most a short bound
+     * for it to be generated. Falls back to the original when the width is not smaller than the largest
+     * bucket or the original, when the format cannot be decoded or the original has more
+     * pixels than allowed; these answers are final. While the variant is being generated, or
+     * when the resize pool is saturated or the resize failed, the original is returned as a
+     * provisional answer that clients should revalidate.
+     *
+     * @param name           the stored file name of the original
+     * @param original       the path of the original
+     * @param requestedWidth the requested width in pixels
+     * @return the variant, or the original with a width of 0
+     */
+    public ImageVariant variant(String name, Path original, int requestedWidth) {
+        Integer width = widths.stream().filter(w -> w >= requestedWidth).findFirst().orElse(null);
+        int dot = name.lastIndexOf('.');
+        String extension = dot < 0 ? "" : name.substring(dot + 1);
+        String format = outputFormat(extension);
+        if (width == null || requestedWidth <= 0 || format == null) {
+            return new ImageVariant(original, 0, false);
+        }
+
+        String variantName = (dot < 0 ? name : name.substring(0, dot)) + "_w" + width + "." + format;
+        Path variant = variantRoot.resolve(variantName);
+        if (touch(variantName) && Files.exists(variant)) {
+            return new ImageVariant(variant, width, false);
+        }
+        if (servedAsOriginal.getIfPresent(variantName) != null) {
+            return new ImageVariant(original, 0, false);
+        }
+
+        // Coalesce concurrent requests for the same variant onto one generation
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(variantName, future);
+        if (existing != null) {
+            future = existing;
+        } else {
+            CompletableFuture<Path> task = future;
+            try {
+                executor.execute(() -> {
+                    try {
+                        Path result = generate(original, variant, width, format);
+                        if (result.equals(original)) {
+                            servedAsOriginal.put(variantName, Boolean.TRUE);
+                        }
+                        task.complete(result);
+                    } catch (RuntimeException e) {
+                        log.error("Failed to resize image {}: {}", name, e.getMessage());
+                        task.completeExceptionally(e);
+                    } finally {
+                        inFlight.remove(variantName, task);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(variantName, task);
+                task.completeExceptionally(e);
+                rejected.increment();
+                log.warn("Resize pool saturated, serving original image {}", name);
+                return new ImageVariant(original, 0, true);
+            }
+        }
+
+        Path result;
+        try {
+            // Small images resize within the bound, so most first requests still get the variant
+            result = future.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return new ImageVariant(original, 0, true);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ImageVariant(original, 0, true);
+        }
+        return result.equals(original) ? new ImageVariant(original, 0, false) : new ImageVariant(result, width, false);
+    }
+
+    public synchronized long cachedBytes() {
+        return totalBytes;
+    }
+
+    private Path generate(Path original, Path variant, int width, String format) {
+        try {
+            BufferedImage source;
+            int height;
+            try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+                Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+                if (!readers.hasNext()) {
+                    // Undecodable
+                    return original;
+                }
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    // The header gives the dimensions without decoding any pixels
+                    int sourceWidth = reader.getWidth(0);
+                    int sourceHeight = reader.getHeight(0);
+                    if (sourceWidth <= width) {
+                        return original;
+                    }
+                    if ((long) sourceWidth * sourceHeight > maxPixels) {
+                        log.warn("Not resizing image {}: {}x{} exceeds the pixel limit", original.getFileName(), sourceWidth, sourceHeight);
+                        return original;
+                    }
+                    // Decode only every n-th pixel, keeping at least twice the target width for the smoothing pass
+                    int subsampling = Math.max(1, sourceWidth / (width * 2));
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    source = reader.read(0, param);
+                    height = Math.max(1, Math.round((float) sourceHeight * width / sourceWidth));
+                } finally {
+                    reader.dispose();
+                }
+            }
+            BufferedImage scaled = new BufferedImage(width, height,
+                    "png".equals(format) ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                graphics.drawImage(source, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+
+            Path tempFile = Files.createTempFile(variantRoot, "variant-", ".tmp");
+            try {
+                write(scaled, format, tempFile);
+                Files.move(tempFile, variant, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+            generated.increment();
+            track(variant.getFileName().toString(), Files.size(variant));
+            return variant;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Records a variant in the LRU index and evicts the least recently used variants
+     * until the cache fits its byte budget again.
+     */
+    private synchronized void track(String variantName, long size) {
+        Long previous = lru.put(variantName, size);
+        totalBytes += size - (previous == null ? 0 : previous);
+        Iterator<Map.Entry<String, Long>> eldest = lru.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            if (entry.getKey().equals(variantName)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(variantRoot.resolve(entry.getKey()));
+            } catch (IOException e) {
+                log.warn("Failed to evict image variant {}: {}", entry.getKey(), e.getMessage());
+            }
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Marks a variant as recently used.
+     *
+     * @return true if the variant is in the cache
+     */
+    private synchronized boolean touch(String variantName) {
+        return lru.get(variantName) != null;
+    }
+
+    private static String outputFormat(String extension) {
+        return switch (extension) {
+            case "jpg", "jpeg" -> "jpg";
+            case "png", "gif", "bmp" -> "png";
+            default -> null;
+        };
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * A resolved image variant.
+     *
+     * @param path        the file to serve
+     * @param width       the variant width in pixels, or 0 for the original
+     * @param provisional whether the original stands in for a variant that is not ready yet
+     */
+    public record ImageVariant(Path path, int width, boolean provisional) {
+    }
+}
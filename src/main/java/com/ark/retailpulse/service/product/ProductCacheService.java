@@ -0,0 +1,144 @@
+package com.ark.retailpulse.service.product;
+
+import com.ark.retailpulse.dto.product.ProductDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Two-tier cache for product details.
+ * A bounded in-process (near) cache sits in front of a shared Redis tier; both are
+ * invalidated after a product change commits, and other nodes drop their near copy
+ * through a Redis pub/sub invalidation message.
+ */
+@Service
+@Slf4j
+public class ProductCacheService implements MessageListener {
+
+    private static final String KEY_PREFIX = "product:";
+    static final String INVALIDATION_CHANNEL = "product:invalidate";
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<Long, ProductDTO> nearCache;
+    private final Duration redisTtl;
+
+    private final Counter redisHits;
+    private final Counter redisMisses;
+
+    public ProductCacheService(RedisTemplate<String, Object> redisTemplate,
+                               RedisMessageListenerContainer listenerContainer,
+                               MeterRegistry meterRegistry,
+                               @Value("${retailpulse.cache.product.near.max-size:10000}") long nearMaxSize,
+                               @Value("${retailpulse.cache.product.near.ttl:30s}") Duration nearTtl,
+                               @Value("${retailpulse.cache.product.redis.ttl:10m}") Duration redisTtl) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.redisTtl = redisTtl;
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(nearMaxSize)
+                .expireAfterWrite(nearTtl)
+                .recordStats()
+                .build();
+
+        // Near tier exposes cache.gets{result=hit|miss}, cache.evictions, cache.size
+        CaffeineCacheMetrics.monitor(meterRegistry, nearCache, "products.near");
+        this.redisHits = Counter.builder("products.redis.gets").tag("result", "hit").register(meterRegistry);
+        this.redisMisses = Counter.builder("products.redis.gets").tag("result", "miss").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    /**
+     * Returns the cached product, falling through near cache, Redis and finally the loader.
+     * Concurrent misses for the same ID on this node share a single load.
+     *
+     * @param id     the product ID
+     * @param loader loads the product from the database on a miss in both tiers
+     * @return the product as a DTO
+     */
+    public ProductDTO get(Long id, Function<Long, ProductDTO> loader) {
+        return nearCache.get(id, key -> {
+            ProductDTO cached = readRedis(key);
+            if (cached != null) {
+                redisHits.increment();
+                return cached;
+            }
+            redisMisses.increment();
+            ProductDTO loaded = loader.apply(key);
+            writeRedis(key, loaded);
+            return loaded;
+        });
+    }
+
+    /**
+     * Drops the product from both tiers and notifies other nodes.
+     *
+     * @param id the product ID
+     */
+    public void invalidate(Long id) {
+        nearCache.invalidate(id);
+        try {
+            redisTemplate.delete(KEY_PREFIX + id);
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, id.toString());
+        } catch (RuntimeException e) {
+            log.warn("Failed to invalidate product {} in Redis: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * Invalidates the product once the change that triggered the event has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        log.debug("Invalidating cached product {} after {}", event.productId(), event.type());
+        invalidate(event.productId());
+    }
+
+    /**
+     * Handles invalidation messages published by any node (including this one).
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        Object body = redisTemplate.getValueSerializer().deserialize(message.getBody());
+        if (body != null) {
+            nearCache.invalidate(Long.valueOf(body.toString()));
+        }
+    }
+
+    private ProductDTO readRedis(Long id) {
+        try {
+            return (ProductDTO) redisTemplate.opsForValue().get(KEY_PREFIX + id);
+        } catch (RuntimeException e) {
+            // Redis is an optimisation here; fall back to the database
+            log.warn("Failed to read product {} from Redis: {}", id, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeRedis(Long id, ProductDTO product) {
+        try {
+            redisTemplate.opsForValue().set(KEY_PREFIX + id, product, redisTtl);
+        } catch (RuntimeException e) {
+            log.warn("Failed to write product {} to Redis: {}", id, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ark.retailpulse.service.product;
+
+/**
+ * Published whenever a product (or data rendered as part of it) changes.
+ * Listeners react after the surrounding transaction commits.
+ *
+ * @param productId the ID of the changed product
+ * @param type      the kind of change
+ */
+public record ProductChangedEvent(Long productId, Type type) {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+}
@@ -0,0 +1,285 @@
+package com.ark.retailpulse.service.product;
+
+import com.ark.retailpulse.dto.product.ProductDTO;
+import com.ark.retailpulse.dto.product.ProductImportReport;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Imports products in bulk from a streamed CSV or NDJSON body.
+ * Rows are parsed and validated as they are read and written with JDBC batch inserts,
+ * one transaction per batch; the body is never held in memory as a whole. A batch the
+ * database rejects is replayed row by row, so only the offending rows fail and each gets
+ * its own error. JDBC is used directly because IDENTITY keys prevent Hibernate from batching inserts.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO product (name, description, price, quantity, image) VALUES (?, ?, ?, ?, ?)";
+    private static final List<String> CSV_COLUMNS = List.of("name", "description", "price", "quantity", "image");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ProductSearchIndex productSearchIndex;
+    private final ProductPageCache productPageCache;
+    private final int batchSize;
+    private final int maxReportedErrors;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                Validator validator,
+                                ProductSearchIndex productSearchIndex,
+                                ProductPageCache productPageCache,
+                                @Value("${retailpulse.import.batch-size:1000}") int batchSize,
+                                @Value("${retailpulse.import.max-reported-errors:1000}") int maxReportedErrors) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.productSearchIndex = productSearchIndex;
+        this.productPageCache = productPageCache;
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    /**
+     * Imports products from the given stream.
+     * CSV input must start with a header row naming the columns
+     * (name, description, price, quantity and optionally image, in any order).
+     *
+     * @param body   the request body
+     * @param format the body format
+     * @return a report with counts and per-row errors
+     * @throws IOException if the body cannot be read
+     */
+    public ProductImportReport importProducts(InputStream body, Format format) throws IOException {
+        ProductImportReport report = new ProductImportReport();
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            Map<String, Integer> header = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (format == Format.CSV && header == null) {
+                    try {
+                        header = parseHeader(line);
+                    } catch (IllegalArgumentException e) {
+                        addError(report, lineNumber, e.getMessage());
+                        return report;
+                    }
+                    continue;
+                }
+
+                report.setProcessed(report.getProcessed() + 1);
+                try {
+                    ProductDTO product = format == Format.CSV ? parseCsvRow(line, header) : parseJsonRow(line);
+                    validate(product);
+                    batch.add(new ImportRow(lineNumber, product));
+                } catch (IllegalArgumentException e) {
+                    reject(report, lineNumber, e.getMessage());
+                }
+
+                if (batch.size() == batchSize) {
+                    flush(batch, report);
+                }
+            }
+        }
+        flush(batch, report);
+
+        log.info("Product import finished: {} processed, {} imported, {} failed",
+                report.getProcessed(), report.getImported(), report.getFailed());
+        if (report.getImported() > 0) {
+            productSearchIndex.rebuildAsync();
+            productPageCache.refresh();
+        }
+        return report;
+    }
+
+    private void flush(List<ImportRow> batch, ProductImportReport report) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(),
+                            (ps, row) -> bind(ps, row.product())));
+            report.setImported(report.getImported() + batch.size());
+        } catch (DataAccessResourceFailureException e) {
+            // The database is unreachable, so replaying the rows one by one cannot help
+            log.error("Product import batch starting at line {} failed: {}", batch.get(0).line(), e.getMessage());
+            report.setFailed(report.getFailed() + batch.size());
+            addError(report, batch.get(0).line(), "Batch of " + batch.size() + " rows starting at this line was rolled back: "
+                    + e.getMostSpecificCause().getMessage());
+        } catch (DataAccessException e) {
+            log.warn("Product import batch starting at line {} failed, retrying row by row: {}",
+                    batch.get(0).line(), e.getMostSpecificCause().getMessage());
+            batch.forEach(row -> insert(row, report));
+        }
+        batch.clear();
+    }
+
+    private void insert(ImportRow row, ProductImportReport report) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, row.product()));
+            report.setImported(report.getImported() + 1);
+        } catch (DataAccessException e) {
+            reject(report, row.line(), e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    private void bind(PreparedStatement ps, ProductDTO product) throws SQLException {
+        ps.setString(1, product.getName());
+        ps.setString(2, product.getDescription());
+        ps.setBigDecimal(3, product.getPrice());
+        ps.setInt(4, product.getQuantity());
+        ps.setString(5, product.getImage());
+    }
+
+    private void reject(ProductImportReport report, long line, String message) {
+        report.setFailed(report.getFailed() + 1);
+        addError(report, line, message);
+    }
+
+    private void addError(ProductImportReport report, long line, String message) {
+        if (report.getErrors().size() < maxReportedErrors) {
+            report.getErrors().add(new ProductImportReport.RowError(line, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private void validate(ProductDTO product) {
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(product);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        if (product.getPrice() == null || product.getQuantity() == null) {
+            throw new IllegalArgumentException("price and quantity are required");
+        }
+    }
+
+    private ProductDTO parseJsonRow(String line) {
+        try {
+            return objectMapper.readValue(line, ProductDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        List<String> names = parseCsvLine(line);
+        Map<String, Integer> header = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            header.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!header.keySet().containsAll(CSV_COLUMNS.subList(0, 4))) {
+            throw new IllegalArgumentException("CSV header must contain the columns " + CSV_COLUMNS.subList(0, 4));
+        }
+        return header;
+    }
+
+    private ProductDTO parseCsvRow(String line, Map<String, Integer> header) {
+        List<String> values = parseCsvLine(line);
+        ProductDTO product = new ProductDTO();
+        product.setName(column(values, header, "name"));
+        product.setDescription(column(values, header, "description"));
+        product.setImage(column(values, header, "image"));
+        try {
+            String price = column(values, header, "price");
+            String quantity = column(values, header, "quantity");
+            product.setPrice(price == null ? null : new BigDecimal(price));
+            product.setQuantity(quantity == null ? null : Integer.valueOf(quantity));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("price and quantity must be numeric");
+        }
+        return product;
+    }
+
+    private String column(List<String> values, Map<String, Integer> header, String name) {
+        Integer index = header.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Splits one CSV record, honouring double-quoted fields and doubled quotes inside them.
+     * Records spanning several lines are not supported.
+     */
+    private List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    /**
+     * A validated row waiting to be written, with the line it was read from.
+     */
+    private record ImportRow(long line, ProductDTO product) {
+    }
+}
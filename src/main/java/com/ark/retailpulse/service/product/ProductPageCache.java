@@ -0,0 +1,245 @@
+package com.ark.retailpulse.service.product;
+
+import com.ark.retailpulse.dto.product.ProductListDTO;
+import com.ark.retailpulse.repository.ProductListingFingerprint;
+import com.ark.retailpulse.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.DigestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of fully encoded product listing pages.
+ * The first pages of the catalog are kept as ready-to-send JSON bytes plus a gzip copy,
+ * so a hit neither queries the database nor serializes anything. Cached pages are
+ * re-rendered in the background shortly after a product change (changes arriving close
+ * together share one rebuild) and keep being served until their replacement is ready.
+ * Pages also expire a short while after they were rendered, which bounds how stale a page
+ * can get if an invalidation is lost.
+ * <p>
+ * Listing ETags come from an aggregate fingerprint of the products rather than from the
+ * encoded bytes, so a conditional request is answered without reading or encoding a page.
+ * A cached page carries the ETag read before its rows, and is re-rendered when the ETag
+ * has moved on.
+ */
+@Service
+@Slf4j
+public class ProductPageCache implements MessageListener {
+
+    private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final Cache<PageKey, EncodedPage> pages;
+    private final int maxPageNumber;
+    private final Duration rebuildDelay;
+    private final Timer rebuildTimer;
+
+    private final ScheduledExecutorService rebuildExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-page-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean();
+
+    public ProductPageCache(ProductRepository productRepository,
+                            ObjectMapper objectMapper,
+                            RedisMessageListenerContainer listenerContainer,
+                            MeterRegistry meterRegistry,
+                            @Value("${retailpulse.cache.product-pages.pages:5}") int maxPageNumber,
+                            @Value("${retailpulse.cache.product-pages.max-size:100}") long maxSize,
+                            @Value("${retailpulse.cache.product-pages.rebuild-delay:500ms}") Duration rebuildDelay,
+                            @Value("${retailpulse.cache.product-pages.ttl:60s}") Duration ttl) {
+        this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.listenerContainer = listenerContainer;
+        this.maxPageNumber = maxPageNumber;
+        this.rebuildDelay = rebuildDelay;
+        this.pages = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "products.pages");
+        this.rebuildTimer = Timer.builder("products.pages.rebuild").register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds on product invalidations broadcast by any node, so every node's pages follow changes.
+     */
+    @PostConstruct
+    public void subscribe() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(ProductCacheService.INVALIDATION_CHANNEL));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+
+    /**
+     * Returns the encoded listing page, rendering it on the first request.
+     * A cached page older than the given ETag is rendered again.
+     *
+     * @param pageable the requested page
+     * @param etag     the current ETag of the page, read with {@link #etag(Double, Pageable)}
+     * @return the encoded page, or null if the page is too deep to be cached
+     */
+    public EncodedPage get(Pageable pageable, String etag) {
+        if (pageable.isUnpaged() || pageable.getPageNumber() >= maxPageNumber) {
+            return null;
+        }
+        PageKey key = PageKey.of(pageable);
+        EncodedPage page = pages.get(key, this::render);
+        if (!page.etag().equals(etag)) {
+            page = render(key);
+            pages.put(key, page);
+        }
+        return page;
+    }
+
+    /**
+     * Computes the weak ETag of a listing page from the listing fingerprint and the page
+     * parameters, with a single aggregate query.
+     *
+     * @param minRating the minimum average rating, or null for all products
+     * @param pageable  the requested page
+     * @return the quoted weak ETag
+     */
+    public String etag(Double minRating, Pageable pageable) {
+        ProductListingFingerprint fingerprint = minRating == null
+                ? productRepository.findListingFingerprint()
+                : productRepository.findListingFingerprintWithMinRating(minRating);
+        String key = fingerprint.getCount() + ":" + fingerprint.getIdSum() + ":" + fingerprint.getVersionSum()
+                + ":" + minRating + ":" + (pageable.isPaged() ? pageable.getPageNumber() + ":" + pageable.getPageSize() : "all")
+                + ":" + pageable.getSort();
+        return "W/\"" + DigestUtils.md5DigestAsHex(key.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    /**
+     * Schedules a rebuild once the product change has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        scheduleRebuild();
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        scheduleRebuild();
+    }
+
+    /**
+     * Schedules a rebuild after changes made without a {@link ProductChangedEvent}, such as a bulk import.
+     */
+    public void refresh() {
+        scheduleRebuild();
+    }
+
+    private void scheduleRebuild() {
+        // Changes arriving while a rebuild is pending are covered by that rebuild
+        if (rebuildScheduled.compareAndSet(false, true)) {
+            rebuildExecutor.schedule(this::rebuild, rebuildDelay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Re-renders every cached page, replacing each entry only once its new bytes are ready.
+     */
+    private void rebuild() {
+        rebuildScheduled.set(false);
+        rebuildTimer.record(() -> {
+            List<PageKey> keys = List.copyOf(pages.asMap().keySet());
+            for (PageKey key : keys) {
+                try {
+                    pages.put(key, render(key));
+                } catch (RuntimeException e) {
+                    log.warn("Failed to rebuild cached product page {}: {}", key, e.getMessage());
+                    pages.invalidate(key);
+                }
+            }
+            log.debug("Rebuilt {} cached product pages", keys.size());
+        });
+    }
+
+    private EncodedPage render(PageKey key) {
+        Pageable pageable = key.toPageable();
+        // The ETag is read first, so the rows are at least as new as it says
+        String etag = etag(null, pageable);
+        return encode(productRepository.findAllWithoutComments(pageable), etag, true);
+    }
+
+    /**
+     * Encodes a listing page, gzip-encoding it too when asked; cached pages always carry both.
+     *
+     * @param page the listing page
+     * @param etag the ETag read before the page was queried
+     * @param gzip whether to produce the gzip copy
+     * @return the encoded page
+     */
+    public EncodedPage encode(Page<ProductListDTO> page, String etag, boolean gzip) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(page);
+            if (!gzip) {
+                return new EncodedPage(json, null, etag);
+            }
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+                out.write(json);
+            }
+            return new EncodedPage(json, compressed.toByteArray(), etag);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A listing page ready to be written to the response.
+     *
+     * @param json the JSON body
+     * @param gzip the same body, gzip-encoded, or null if it was not needed
+     * @param etag the quoted weak ETag of the body
+     */
+    public record EncodedPage(byte[] json, byte[] gzip, String etag) {
+    }
+
+    private record PageKey(int page, int size, Sort sort) {
+
+        static PageKey of(Pageable pageable) {
+            return new PageKey(pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort());
+        }
+
+        Pageable toPageable() {
+            return PageRequest.of(page, size, sort);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.ark.retailpulse.service.product;
+
+import com.ark.retailpulse.dto.product.RatingSummaryDTO;
+import com.ark.retailpulse.model.ProductRating;
+import com.ark.retailpulse.repository.ProductRatingRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maintains the materialized rating aggregates of products.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductRatingService {
+
+    /**
+     * Recomputes every aggregate from the comments table, writing (and versioning) only the
+     * rows whose counts differ, and returns the IDs of the products it changed.
+     */
+    private static final String RECOMPUTE_ALL =
+            "INSERT INTO product_rating (product_id, rating_count, rating_sum, average, one_star, two_star, three_star, four_star, five_star, version) " +
+            "SELECT c.product_id, COUNT(*), SUM(c.score), CAST(SUM(c.score) AS double precision) / COUNT(*), " +
+            "COUNT(*) FILTER (WHERE c.score = 1), COUNT(*) FILTER (WHERE c.score = 2), COUNT(*) FILTER (WHERE c.score = 3), " +
+            "COUNT(*) FILTER (WHERE c.score = 4), COUNT(*) FILTER (WHERE c.score = 5), 1 " +
+            "FROM comment c WHERE c.score IS NOT NULL GROUP BY c.product_id " +
+            "ON CONFLICT (product_id) DO UPDATE SET " +
+            "rating_count = EXCLUDED.rating_count, rating_sum = EXCLUDED.rating_sum, average = EXCLUDED.average, " +
+            "one_star = EXCLUDED.one_star, two_star = EXCLUDED.two_star, three_star = EXCLUDED.three_star, " +
+            "four_star = EXCLUDED.four_star, five_star = EXCLUDED.five_star, version = product_rating.version + 1 " +
+            "WHERE (product_rating.rating_count, product_rating.rating_sum, product_rating.one_star, product_rating.two_star, " +
+            "product_rating.three_star, product_rating.four_star, product_rating.five_star) IS DISTINCT FROM " +
+            "(EXCLUDED.rating_count, EXCLUDED.rating_sum, EXCLUDED.one_star, EXCLUDED.two_star, " +
+            "EXCLUDED.three_star, EXCLUDED.four_star, EXCLUDED.five_star) " +
+            "RETURNING product_id";
+
+    /**
+     * Resets aggregates of products that no longer have any scored comment to unrated. Rows are
+     * kept rather than deleted so their version keeps counting up.
+     */
+    private static final String RESET_ORPHANED =
+            "UPDATE product_rating r SET rating_count = 0, rating_sum = 0, average = 0, " +
+            "one_star = 0, two_star = 0, three_star = 0, four_star = 0, five_star = 0, version = r.version + 1 " +
+            "WHERE r.rating_count > 0 AND NOT EXISTS " +
+            "(SELECT 1 FROM comment c WHERE c.product_id = r.product_id AND c.score IS NOT NULL) " +
+            "RETURNING r.product_id";
+
+    private final ProductRatingRepository productRatingRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Records a new comment on the product: adds its score to the aggregate if it has one and
+     * bumps the aggregate version either way, since the comments are part of the product details.
+     * Joins the caller's transaction so the aggregate commits together with the comment.
+     *
+     * @param productId the product ID
+     * @param score     the score, 1 to 5, or null for an unscored comment
+     */
+    @Transactional
+    public void recordComment(Long productId, Integer score) {
+        if (score != null) {
+            productRatingRepository.addScore(productId, score);
+        } else {
+            productRatingRepository.touch(productId);
+        }
+    }
+
+    /**
+     * Returns the rating summary of a product.
+     *
+     * @param productId the product ID
+     * @return the summary, with zero counts if the product has no scores yet
+     */
+    public RatingSummaryDTO getSummary(Long productId) {
+        ProductRating rating = productRatingRepository.findById(productId)
+                .orElseGet(() -> new ProductRating(productId, 0, 0, 0, 0, 0, 0, 0, 0, 0));
+
+        Map<Integer, Long> histogram = new LinkedHashMap<>();
+        histogram.put(1, rating.getOneStar());
+        histogram.put(2, rating.getTwoStar());
+        histogram.put(3, rating.getThreeStar());
+        histogram.put(4, rating.getFourStar());
+        histogram.put(5, rating.getFiveStar());
+        return new RatingSummaryDTO(rating.getAverage(), rating.getRatingCount(), histogram, rating.getVersion());
+    }
+
+    /**
+     * Removes the aggregate of a deleted product.
+     *
+     * @param productId the product ID
+     */
+    @Transactional
+    public void deleteSummary(Long productId) {
+        if (productRatingRepository.existsById(productId)) {
+            productRatingRepository.deleteById(productId);
+        }
+    }
+
+    /**
+     * Recomputes all aggregates from the comments to repair any drift, and announces every
+     * product whose aggregate changed so cached copies and ETags follow.
+     * Runs nightly by default.
+     */
+    @Transactional
+    @Scheduled(cron = "${retailpulse.ratings.recompute-cron:0 30 3 * * *}")
+    public void recomputeAll() {
+        long start = System.currentTimeMillis();
+        List<Long> updated = jdbcTemplate.queryForList(RECOMPUTE_ALL, Long.class);
+        List<Long> reset = jdbcTemplate.queryForList(RESET_ORPHANED, Long.class);
+        updated.forEach(this::announce);
+        reset.forEach(this::announce);
+        log.info("Recomputed {} drifted product ratings and reset {} stale ones in {} ms",
+                updated.size(), reset.size(), System.currentTimeMillis() - start);
+    }
+
+    private void announce(Long productId) {
+        eventPublisher.publishEvent(new ProductChangedEvent(productId, ProductChangedEvent.Type.UPDATED));
+    }
+}
@@ -0,0 +1,287 @@
+package com.ark.retailpulse.service.product;
+
+import com.ark.retailpulse.dto.product.ProductListDTO;
+import com.ark.retailpulse.repository.ProductRepository;
+import com.ark.retailpulse.repository.ProductSortKey;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over product names and descriptions.
+ * Built from the repository at startup and kept current from {@link ProductChangedEvent}s,
+ * so searches are answered entirely from memory. Results are ranked with BM25, name
+ * matches weigh more than description matches, and the last query term also matches
+ * as a prefix to support search-as-you-type.
+ */
+@Service
+@Slf4j
+public class ProductSearchIndex {
+
+    private static final float NAME_WEIGHT = 3f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+    private static final String TOKEN_SEPARATOR = "[^\\p{L}\\p{Nd}]+";
+
+    private final ProductRepository productRepository;
+    private final int rebuildBatchSize;
+    private final Timer rebuildTimer;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile IndexData index = new IndexData();
+
+    // IDs changed while a rebuild was reading the repository, re-indexed after the swap
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+
+    public ProductSearchIndex(ProductRepository productRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${retailpulse.search.rebuild-batch-size:1000}") int rebuildBatchSize) {
+        this.productRepository = productRepository;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.rebuildTimer = Timer.builder("products.search.rebuild").register(meterRegistry);
+        Gauge.builder("products.search.documents", this, ProductSearchIndex::documentCount).register(meterRegistry);
+        Gauge.builder("products.search.terms", this, ProductSearchIndex::termCount).register(meterRegistry);
+        Gauge.builder("products.search.postings", this, ProductSearchIndex::postingCount).register(meterRegistry);
+    }
+
+    /**
+     * Builds the index once the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the index from scratch and swaps it in atomically.
+     * Searches keep using the previous index while the repository is being read.
+     *
+     * @return the number of indexed products
+     */
+    public synchronized int rebuild() {
+        synchronized (changedDuringRebuild) {
+            rebuilding = true;
+            changedDuringRebuild.clear();
+        }
+        try {
+            return rebuildTimer.record(() -> {
+                IndexData fresh = new IndexData();
+                Long afterId = null;
+                List<ProductListDTO> batch;
+                do {
+                    // Seek by ID so the scan cost per batch stays flat
+                    batch = productRepository.findListingAfter(ProductSortKey.ID, false, null, afterId, rebuildBatchSize);
+                    batch.forEach(fresh::add);
+                    if (!batch.isEmpty()) {
+                        afterId = batch.get(batch.size() - 1).getId();
+                    }
+                } while (batch.size() == rebuildBatchSize);
+
+                lock.writeLock().lock();
+                try {
+                    index = fresh;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                log.info("Product search index rebuilt with {} products and {} terms",
+                        fresh.documents.size(), fresh.postings.size());
+                return fresh.documents.size();
+            });
+        } finally {
+            Set<Long> missed;
+            synchronized (changedDuringRebuild) {
+                rebuilding = false;
+                missed = new HashSet<>(changedDuringRebuild);
+                changedDuringRebuild.clear();
+            }
+            missed.forEach(this::reindex);
+        }
+    }
+
+    /**
+     * Rebuilds the index on a background thread, e.g. after a bulk import.
+     */
+    @Async
+    public void rebuildAsync() {
+        rebuild();
+    }
+
+    /**
+     * Keeps the index in step with committed product changes.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (changedDuringRebuild) {
+            if (rebuilding) {
+                changedDuringRebuild.add(event.productId());
+            }
+        }
+        if (event.type() == ProductChangedEvent.Type.DELETED) {
+            remove(event.productId());
+        } else {
+            reindex(event.productId());
+        }
+    }
+
+    /**
+     * Searches the index and returns ranked, paginated results.
+     *
+     * @param query    free text; terms are OR-ed and the last term also matches as a prefix
+     * @param pageable the page to return (sorting is always by relevance)
+     * @return a page of matching products, best match first
+     */
+    public Page<ProductListDTO> search(String query, Pageable pageable) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        lock.readLock().lock();
+        try {
+            IndexData data = index;
+            Map<Long, Double> scores = new HashMap<>();
+            for (int i = 0; i < terms.size(); i++) {
+                String term = terms.get(i);
+                if (i == terms.size() - 1) {
+                    // Search-as-you-type: the last term may be incomplete
+                    data.postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet().stream()
+                            .limit(MAX_PREFIX_EXPANSIONS)
+                            .forEach(entry -> data.score(entry.getValue(), scores));
+                } else {
+                    Map<Long, Float> postings = data.postings.get(term);
+                    if (postings != null) {
+                        data.score(postings, scores);
+                    }
+                }
+            }
+
+            List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort(Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+
+            int from = (int) Math.min(pageable.getOffset(), ranked.size());
+            int to = Math.min(from + pageable.getPageSize(), ranked.size());
+            List<ProductListDTO> content = ranked.subList(from, to).stream()
+                    .map(entry -> data.documents.get(entry.getKey()).product)
+                    .toList();
+            return new PageImpl<>(content, pageable, ranked.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int documentCount() {
+        return index.documents.size();
+    }
+
+    public int termCount() {
+        return index.postings.size();
+    }
+
+    public long postingCount() {
+        return index.postingCount;
+    }
+
+    private void reindex(Long productId) {
+        Optional<ProductListDTO> product = productRepository.findListingById(productId);
+        lock.writeLock().lock();
+        try {
+            index.remove(productId);
+            product.ifPresent(index::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            index.remove(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(text.toLowerCase(Locale.ROOT).split(TOKEN_SEPARATOR))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+
+    /**
+     * A product held by the index: the listing snapshot returned to clients, plus the
+     * weighted term frequencies needed to remove it again.
+     */
+    private record IndexedProduct(ProductListDTO product, Map<String, Float> termWeights, float length) {
+    }
+
+    /**
+     * The index structures. Mutated only under the write lock, or before being published.
+     */
+    private static final class IndexData {
+        private final NavigableMap<String, Map<Long, Float>> postings = new TreeMap<>();
+        private final Map<Long, IndexedProduct> documents = new HashMap<>();
+        private double totalLength;
+        private long postingCount;
+
+        void add(ProductListDTO product) {
+            Map<String, Float> weights = new HashMap<>();
+            tokenize(product.getName()).forEach(token -> weights.merge(token, NAME_WEIGHT, Float::sum));
+            tokenize(product.getDescription()).forEach(token -> weights.merge(token, DESCRIPTION_WEIGHT, Float::sum));
+            float length = (float) weights.values().stream().mapToDouble(Float::doubleValue).sum();
+
+            weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(product.getId(), weight));
+            documents.put(product.getId(), new IndexedProduct(product, weights, length));
+            totalLength += length;
+            postingCount += weights.size();
+        }
+
+        void remove(Long productId) {
+            IndexedProduct existing = documents.remove(productId);
+            if (existing == null) {
+                return;
+            }
+            existing.termWeights().keySet().forEach(term -> {
+                Map<Long, Float> termPostings = postings.get(term);
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            });
+            totalLength -= existing.length();
+            postingCount -= existing.termWeights().size();
+        }
+
+        /**
+         * Adds the BM25 contribution of one term's postings to the running scores.
+         */
+        void score(Map<Long, Float> termPostings, Map<Long, Double> scores) {
+            int n = documents.size();
+            double idf = Math.log(1 + (n - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+            double avgLength = n == 0 ? 1 : totalLength / n;
+            termPostings.forEach((productId, tf) -> {
+                double norm = K1 * (1 - B + B * documents.get(productId).length() / avgLength);
+                scores.merge(productId, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+            });
+        }
+    }
+}
@@ -1,24 +1,27 @@
 package com.ark.retailpulse.service.product;
 
+import com.ark.retailpulse.dto.CursorPage;
 import com.ark.retailpulse.dto.product.ProductDTO;
 import com.ark.retailpulse.dto.product.ProductListDTO;
+import com.ark.retailpulse.exception.InvalidPageRequestException;
 import com.ark.retailpulse.exception.ResourceNotFoundException;
 import com.ark.retailpulse.mapper.ProductMapper;
 import com.ark.retailpulse.model.Product;
 import com.ark.retailpulse.repository.ProductRepository;
+import com.ark.retailpulse.repository.ProductSortKey;
+import com.ark.retailpulse.repository.ProductVersionView;
+import com.ark.retailpulse.util.CursorUtil;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -27,8 +30,13 @@ public class ProductService {
 
     private final ProductRepository productRepository;
     private final ProductMapper productMapper;
-
-    private static final String UPLOAD_DIR = "src/main/resources/images/";
+    private final ProductCacheService productCacheService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CursorUtil cursorUtil;
+    private final ProductSearchIndex productSearchIndex;
+    private final ImageStorageService imageStorageService;
+    private final ProductRatingService productRatingService;
+    private final ProductPageCache productPageCache;
 
     /**
      * Creates a new product and saves it to the repository.
@@ -55,6 +63,7 @@ public class ProductService {
         // Save the product to the repository
         Product savedProduct = productRepository.save(product);
         log.info("Product created with ID: {}", savedProduct.getId());
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId(), ProductChangedEvent.Type.CREATED));
 
         return productMapper.toDTO(savedProduct);
     }
@@ -92,6 +101,7 @@ public class ProductService {
         // Save the updated product
         Product updatedProduct = productRepository.save(existingProduct);
         log.info("Product updated with ID: {}", updatedProduct.getId());
+        eventPublisher.publishEvent(new ProductChangedEvent(updatedProduct.getId(), ProductChangedEvent.Type.UPDATED));
 
         return productMapper.toDTO(updatedProduct);
     }
@@ -110,13 +120,16 @@ public class ProductService {
             throw new ResourceNotFoundException("Product not found");
         }
 
-        // Delete the product
+        // Delete the product along with its rating aggregate
         productRepository.deleteById(id);
+        productRatingService.deleteSummary(id);
         log.info("Product deleted with ID: {}", id);
+        eventPublisher.publishEvent(new ProductChangedEvent(id, ProductChangedEvent.Type.DELETED));
     }
 
     /**
      * Retrieves a product by its ID.
+     * Served from the product cache; the database is only hit on a miss in both tiers.
      *
      * @param id the ID of the product to retrieve
      * @return the product as a DTO
@@ -124,11 +137,72 @@ public class ProductService {
     public ProductDTO getProduct(Long id) {
         log.info("Fetching product with ID: {}", id);
 
+        return productCacheService.get(id, this::loadProduct);
+    }
+
+    /**
+     * Returns the weak ETag of a product's detail response.
+     * Derived from the product version and the version of its comments and rating, always read
+     * with one narrow query so a near cache that has not yet seen an update cannot hand out an
+     * outdated ETag.
+     *
+     * @param id the ID of the product
+     * @return the quoted weak ETag
+     */
+    public String getProductETag(Long id) {
+        ProductVersionView versions = productRepository.findVersionById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
+        return eTag(id, versions.getProductVersion(), versions.getRatingVersion());
+    }
+
+    /**
+     * Returns the weak ETag describing the given product details.
+     *
+     * @param product the product as served
+     * @return the quoted weak ETag
+     */
+    public String getProductETag(ProductDTO product) {
+        long ratingVersion = product.getRating() == null ? 0 : product.getRating().getVersion();
+        return eTag(product.getId(), product.getVersion(), ratingVersion);
+    }
+
+    /**
+     * Retrieves a product at least as new as the given ETag.
+     * A cached copy older than the ETag (an invalidation was missed or has not arrived yet)
+     * is evicted and the product reloaded, so a stale body is never sent under a newer ETag.
+     *
+     * @param id   the ID of the product to retrieve
+     * @param etag the ETag read with {@link #getProductETag(Long)}
+     * @return the product as a DTO
+     */
+    public ProductDTO getProduct(Long id, String etag) {
+        ProductDTO product = getProduct(id);
+        if (!etag.equals(getProductETag(product))) {
+            log.info("Cached product {} is outdated, reloading", id);
+            productCacheService.invalidate(id);
+            product = getProduct(id);
+        }
+        return product;
+    }
+
+    private static String eTag(Long id, Long productVersion, long ratingVersion) {
+        return "W/\"" + id + "-" + productVersion + "-" + ratingVersion + "\"";
+    }
+
+    /**
+     * Loads a product from the repository, bypassing the cache.
+     *
+     * @param id the ID of the product to load
+     * @return the product as a DTO
+     */
+    private ProductDTO loadProduct(Long id) {
         // Find the product by ID
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found"));
 
-        return productMapper.toDTO(product);
+        ProductDTO productDTO = productMapper.toDTO(product);
+        productDTO.setRating(productRatingService.getSummary(id));
+        return productDTO;
     }
 
     /**
@@ -144,18 +218,141 @@ public class ProductService {
     }
 
     /**
-     * Saves the product image to the server's file system.
+     * Returns the weak ETag of a listing page without reading or encoding the page.
+     *
+     * @param minRating the minimum average rating, or null for all products
+     * @param pageable  pagination details
+     * @return the quoted weak ETag
+     */
+    public String getProductsETag(Double minRating, Pageable pageable) {
+        return productPageCache.etag(minRating, pageable);
+    }
+
+    /**
+     * Retrieves a listing page as encoded response bytes with their ETag.
+     * The first pages of the unfiltered catalog come from the page cache with no query and no
+     * serialization; any other page is queried once and encoded, gzip-encoded only if asked.
+     *
+     * @param minRating the minimum average rating, or null for all products
+     * @param pageable  pagination details
+     * @param etag      the ETag read with {@link #getProductsETag(Double, Pageable)} before the page
+     * @param gzip      whether the client accepts a gzip-encoded body
+     * @return the encoded page
+     */
+    public ProductPageCache.EncodedPage getEncodedProducts(Double minRating, Pageable pageable, String etag, boolean gzip) {
+        ProductPageCache.EncodedPage cached = minRating == null ? productPageCache.get(pageable, etag) : null;
+        if (cached != null) {
+            return cached;
+        }
+        Page<ProductListDTO> products = minRating == null
+                ? getAllProducts(pageable)
+                : getProductsWithMinRating(minRating, pageable);
+        return productPageCache.encode(products, etag, gzip);
+    }
+
+    /**
+     * Retrieves products rated at least the given average, with pagination.
+     * Filters on the materialized rating aggregates, so no comments are read.
+     *
+     * @param minRating the minimum average rating
+     * @param pageable  pagination details
+     * @return a page of matching products without comments
+     */
+    public Page<ProductListDTO> getProductsWithMinRating(double minRating, Pageable pageable) {
+        log.info("Fetching products rated at least {}", minRating);
+
+        return productRepository.findAllWithMinRating(minRating, pageable);
+    }
+
+    /**
+     * Retrieves products with keyset pagination, ordered by the given key and then by ID.
+     * No count query is issued and the cost of a slice does not depend on how deep it is.
+     *
+     * @param cursor     the cursor returned with the previous slice, or blank for the first slice
+     * @param size       the maximum number of products to return
+     * @param sortKey    the column to order by; ignored when a cursor is given
+     * @param descending whether to order descending; ignored when a cursor is given
+     * @return the next slice of products and the cursor to continue from
+     */
+    public CursorPage<ProductListDTO> getProductsAfter(String cursor, int size, ProductSortKey sortKey, boolean descending) {
+        log.info("Fetching products after cursor with page size = {}", size);
+
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            // The cursor pins the ordering it was issued for
+            String[] parts = cursorUtil.decode(cursor, 4);
+            sortKey = ProductSortKey.from(parts[0]);
+            descending = Boolean.parseBoolean(parts[1]);
+            afterId = parseId(parts[2]);
+            afterValue = sortKey.parse(parts[3]);
+        }
+
+        // Fetch one extra row to learn whether another slice follows
+        List<ProductListDTO> rows = productRepository.findListingAfter(sortKey, descending, afterValue, afterId, size + 1);
+        boolean hasNext = rows.size() > size;
+        List<ProductListDTO> items = hasNext ? rows.subList(0, size) : rows;
+
+        String nextCursor = null;
+        if (hasNext) {
+            ProductListDTO last = items.get(items.size() - 1);
+            nextCursor = cursorUtil.encode(sortKey.name(), String.valueOf(descending),
+                    String.valueOf(last.getId()), sortValue(sortKey, last));
+        }
+        return new CursorPage<>(items, nextCursor, hasNext);
+    }
+
+    /**
+     * Full-text search over product names and descriptions.
+     * Answered from the in-memory search index without touching the database.
+     *
+     * @param query    the search text
+     * @param pageable pagination details
+     * @return a page of matching products ordered by relevance
+     */
+    public Page<ProductListDTO> searchProducts(String query, Pageable pageable) {
+        log.info("Searching products for '{}'", query);
+
+        return productSearchIndex.search(query, pageable);
+    }
+
+    /**
+     * Rebuilds the search index from the repository.
+     *
+     * @return the number of indexed products
+     */
+    public int rebuildSearchIndex() {
+        log.info("Rebuilding product search index");
+
+        return productSearchIndex.rebuild();
+    }
+
+    private String sortValue(ProductSortKey sortKey, ProductListDTO product) {
+        return switch (sortKey) {
+            case ID -> "";
+            case NAME -> product.getName();
+            case PRICE -> product.getPrice().toPlainString();
+            case RATING -> product.getAverageRating().toString();
+        };
+    }
+
+    private Long parseId(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new InvalidPageRequestException("Malformed pagination cursor");
+        }
+    }
+
+    /**
+     * Saves the product image to the configured image storage.
+     * The image is streamed rather than buffered and stored under its content hash.
      *
      * @param image the image file to save
      * @return the saved image file's name
      * @throws IOException if there is an error saving the image
      */
     private String saveImage(MultipartFile image) throws IOException {
-        String fileName = UUID.randomUUID().toString() + "_" + image.getOriginalFilename();
-        Path path = Paths.get(UPLOAD_DIR + fileName);
-        Files.createDirectories(path.getParent()); // Ensure the directory exists
-        Files.write(path, image.getBytes()); // Save the file
-        log.info("Image saved with filename: {}", fileName);
-        return fileName;
+        return imageStorageService.store(image);
     }
 }
@@ -1,7 +1,6 @@
 package com.ark.retailpulse.service.sms;
 
 import com.ark.retailpulse.model.Otp;
-import com.ark.retailpulse.repository.OtpRepository;
 import com.ark.retailpulse.util.CodeGeneratorUtil;
 import com.twilio.Twilio;
 import com.twilio.exception.ApiException;
@@ -20,7 +19,6 @@ public class TwilioOtpService {
 
     private static final Logger logger = LoggerFactory.getLogger(TwilioOtpService.class);
 
-    private final OtpRepository otpRepository;
     private final CodeGeneratorUtil codeGeneratorUtil;
 
     @Value("${twilio.accountSid}")
@@ -44,8 +42,6 @@ public class TwilioOtpService {
      */
     public void sendOtp(Otp otp) {
         try {
-            // Save the OTP object to the repository
-            otpRepository.save(otp);
 //             todo: Uncomment for sending sms otp
 //             Message.creator(
 //                 new PhoneNumber(otp.getPhoneNumber()),
@@ -9,9 +9,9 @@ import com.ark.retailpulse.model.Otp;
 import com.ark.retailpulse.model.User;
 import com.ark.retailpulse.repository.OtpRepository;
 import com.ark.retailpulse.repository.UserRepository;
-import com.ark.retailpulse.service.emaiil.EmailService;
-import com.ark.retailpulse.service.sms.TwilioOtpService;
+import com.ark.retailpulse.service.outbox.OutboxService;
 import com.ark.retailpulse.util.CodeGeneratorUtil;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,8 +31,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-    private final EmailService emailService;
-    private final TwilioOtpService twilioOtpService;
+    private final OutboxService outboxService;
     private final CodeGeneratorUtil codeGeneratorUtil;
     private final OtpRepository otpRepository;
 
@@ -43,11 +42,13 @@ public class UserService {
 
     /**
      * Registers a new user by validating uniqueness of email and phone number,
-     * encoding the password, generating OTP, and sending confirmation emails/SMS.
+     * encoding the password, generating OTP, and queueing confirmation emails/SMS.
+     * The confirmations are sent by the outbox dispatcher once the user is committed.
      *
      * @param user the user to be registered
      * @return the saved user
      */
+    @Transactional
     public User registerUser(User user) {
         validateUserDoesNotExist(user.getEmail(), user.getPhoneNumber());
 
@@ -55,8 +56,8 @@ public class UserService {
         user.setRole(User.Role.USER);
 
         Otp otp = generateAndSaveOtp(user);
-        emailService.sendEmailConfirmationCode(user);
-        twilioOtpService.sendOtp(otp);
+        outboxService.emailOtp(otp);
+        outboxService.smsOtp(otp);
 
         return userRepository.save(user);
     }
@@ -241,6 +242,7 @@ public class UserService {
      * @param isPhoneOtp true if the OTP is for phone number, false for email
      * @throws IllegalStateException if the resend limit is exceeded
      */
+    @Transactional
     public void resendOtp(String identifier, boolean isPhoneOtp) {
 
         // Find the OTP by email or phone number
@@ -277,13 +279,12 @@ public class UserService {
         }
 
         otpRepository.save(otp);
-        User user = otp.getUser();
 
-        // Trigger resend logic (e.g., send OTP via SMS/Email)
+        // Queue the resend; the outbox dispatcher sends it via SMS/Email after commit
         if (isPhoneOtp) {
-            twilioOtpService.sendOtp(otp); // Sending OTP via Twilio for phone
+            outboxService.smsOtp(otp);
         } else {
-            emailService.sendEmailConfirmationCode(user); // Sending OTP via email
+            outboxService.emailOtp(otp);
         }
     }
 
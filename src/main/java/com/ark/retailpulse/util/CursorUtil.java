@@ -0,0 +1,51 @@
+package com.ark.retailpulse.util;
+
+import com.ark.retailpulse.exception.InvalidPageRequestException;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Utility class for building and reading opaque pagination cursors.
+ * A cursor is a URL-safe Base64 encoding of the keyset values of the last row returned,
+ * so clients cannot depend on (or tamper with) its structure.
+ */
+@Component
+public class CursorUtil {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Encodes the given values into an opaque cursor.
+     * Only the last value may contain the separator character.
+     *
+     * @param parts the keyset values, in order
+     * @return the encoded cursor
+     */
+    public String encode(String... parts) {
+        String raw = String.join(SEPARATOR, parts);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor produced by {@link #encode(String...)}.
+     *
+     * @param cursor the encoded cursor
+     * @param parts  the number of values the cursor must contain
+     * @return the keyset values, in order
+     * @throws InvalidPageRequestException if the cursor is malformed
+     */
+    public String[] decode(String cursor, int parts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] values = raw.split("\\|", parts);
+            if (values.length != parts) {
+                throw new InvalidPageRequestException("Malformed pagination cursor");
+            }
+            return values;
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("Malformed pagination cursor");
+        }
+    }
+}
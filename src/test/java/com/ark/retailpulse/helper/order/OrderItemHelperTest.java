@@ -0,0 +1,80 @@
+package com.ark.retailpulse.helper.order;
+
+import com.ark.retailpulse.exception.InsufficientStockException;
+import com.ark.retailpulse.model.*;
+import com.ark.retailpulse.service.inventory.DatabaseInventoryEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@Import({OrderItemHelper.class, DatabaseInventoryEngine.class})
+class OrderItemHelperTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderItemHelper orderItemHelper;
+
+    private Product first;
+    private Product second;
+
+    @BeforeEach
+    void setUp() {
+        first = persistProduct("First", "10", 5);
+        second = persistProduct("Second", "20", 2);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void decrementsStockAndPricesItems() {
+        List<OrderItem> items = orderItemHelper.createOrderItems(cart(second, 2, first, 3), new Order());
+
+        assertThat(items).extracting(OrderItem::getQuantity).containsExactly(3, 2);
+        assertThat(items.get(0).getPrice()).isEqualByComparingTo("10");
+        assertThat(items.get(1).getPrice()).isEqualByComparingTo("20");
+        assertThat(stockOf(first)).isEqualTo(2);
+        assertThat(stockOf(second)).isZero();
+    }
+
+    @Test
+    void refusesToOversell() {
+        assertThatThrownBy(() -> orderItemHelper.createOrderItems(cart(first, 1, second, 3), new Order()))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThat(stockOf(second)).isEqualTo(2);
+    }
+
+    private Product persistProduct(String name, String price, int quantity) {
+        Product product = new Product();
+        product.setName(name);
+        product.setDescription(name);
+        product.setPrice(new BigDecimal(price));
+        product.setQuantity(quantity);
+        return entityManager.persist(product);
+    }
+
+    private Cart cart(Product product, int quantity, Product otherProduct, int otherQuantity) {
+        Cart cart = new Cart();
+        cart.setItems(new ArrayList<>(List.of(
+                new CartItem(null, cart, product, quantity, null),
+                new CartItem(null, cart, otherProduct, otherQuantity, null))));
+        return cart;
+    }
+
+    private int stockOf(Product product) {
+        entityManager.clear();
+        return entityManager.find(Product.class, product.getId()).getQuantity();
+    }
+}
@@ -0,0 +1,106 @@
+package com.ark.retailpulse.service.cart;
+
+import com.ark.retailpulse.exception.InsufficientStockException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InMemoryStockReservationServiceTest {
+
+    private static final Map<Long, Integer> STOCK = Map.of(1L, 5, 2L, 5);
+
+    private InMemoryStockReservationService service(Duration ttl) {
+        return new InMemoryStockReservationService(null, new SimpleMeterRegistry(), ttl, 4);
+    }
+
+    @Test
+    void holdsOfOtherUsersReduceAvailableStock() {
+        InMemoryStockReservationService reservations = service(Duration.ofMinutes(15));
+        reservations.reserve(1L, List.of(add(1L, 3)), STOCK);
+
+        assertThatThrownBy(() -> reservations.reserve(2L, List.of(add(1L, 3)), STOCK))
+                .isInstanceOf(InsufficientStockException.class);
+        assertThatCode(() -> reservations.reserve(2L, List.of(add(1L, 2)), STOCK)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void ownHoldGrowsWithAddsAndIsReplacedBySets() {
+        InMemoryStockReservationService reservations = service(Duration.ofMinutes(15));
+        reservations.reserve(1L, List.of(add(1L, 3)), STOCK);
+
+        assertThatThrownBy(() -> reservations.reserve(1L, List.of(add(1L, 3)), STOCK))
+                .isInstanceOf(InsufficientStockException.class);
+        reservations.reserve(1L, List.of(new CartItemChange(1L, 5, true, null)), STOCK);
+        reservations.reserve(1L, List.of(new CartItemChange(1L, 1, true, null)), STOCK);
+
+        assertThatCode(() -> reservations.reserve(2L, List.of(add(1L, 4)), STOCK)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void failedBatchKeepsPreviousHolds() {
+        InMemoryStockReservationService reservations = service(Duration.ofMinutes(15));
+        reservations.reserve(1L, List.of(add(1L, 2)), STOCK);
+
+        assertThatThrownBy(() -> reservations.reserve(1L, List.of(add(1L, 3), add(2L, 6)), STOCK))
+                .isInstanceOf(InsufficientStockException.class);
+
+        // The first change was rolled back to the original hold of 2
+        assertThatCode(() -> reservations.reserve(2L, List.of(add(1L, 3), add(2L, 5)), STOCK)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void releasedAndExpiredHoldsFreeStock() {
+        InMemoryStockReservationService reservations = service(Duration.ofMinutes(15));
+        reservations.reserve(1L, List.of(add(1L, 5)), STOCK);
+        reservations.releaseAll(1L);
+        assertThatCode(() -> reservations.reserve(2L, List.of(add(1L, 5)), STOCK)).doesNotThrowAnyException();
+
+        InMemoryStockReservationService expiring = service(Duration.ZERO);
+        expiring.reserve(1L, List.of(add(1L, 5)), STOCK);
+        assertThatCode(() -> expiring.reserve(2L, List.of(add(1L, 5)), STOCK)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void rolledBackReservationRestoresPreviousHolds() {
+        InMemoryStockReservationService reservations = service(Duration.ofMinutes(15));
+        reservations.reserve(1L, List.of(add(1L, 2)), STOCK);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            reservations.reserve(1L, List.of(add(1L, 3)), STOCK);
+            // The cart write failed and the transaction rolled back
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThatCode(() -> reservations.reserve(2L, List.of(add(1L, 3)), STOCK)).doesNotThrowAnyException();
+    }
+
+    @Test
+    void usersWithoutHoldsAreNotTracked() {
+        InMemoryStockReservationService reservations = service(Duration.ofMinutes(15));
+        reservations.reserve(1L, List.of(add(1L, 1), add(2L, 1)), STOCK);
+        reservations.reserve(1L, List.of(new CartItemChange(1L, 0, true, null), new CartItemChange(2L, 0, true, null)), STOCK);
+        assertThat(reservations.trackedUsers()).isZero();
+
+        InMemoryStockReservationService expiring = service(Duration.ZERO);
+        expiring.reserve(1L, List.of(add(1L, 1)), STOCK);
+        expiring.purgeExpired();
+        assertThat(expiring.trackedUsers()).isZero();
+    }
+
+    private static CartItemChange add(Long productId, int quantity) {
+        return new CartItemChange(productId, quantity, false, null);
+    }
+}
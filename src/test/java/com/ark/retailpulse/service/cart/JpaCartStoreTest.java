@@ -0,0 +1,98 @@
+package com.ark.retailpulse.service.cart;
+
+import com.ark.retailpulse.model.*;
+import com.ark.retailpulse.response.CartDtoDetails.CartDtoDetails;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(JpaCartStore.class)
+class JpaCartStoreTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JpaCartStore cartStore;
+
+    private Statistics statistics;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        User user = new User();
+        user.setEmail("cart@example.com");
+        user.setPassword("secret");
+        user.setPhoneNumber("1234567890");
+        user.setRole(User.Role.USER);
+        entityManager.persist(user);
+        userId = user.getId();
+
+        Cart cart = new Cart(null, user, new ArrayList<>(), BigDecimal.ZERO, 0, null);
+        for (int i = 1; i <= 5; i++) {
+            Product product = new Product();
+            product.setName("Product " + i);
+            product.setDescription("Description " + i);
+            product.setPrice(BigDecimal.valueOf(10L * i));
+            product.setQuantity(100);
+            entityManager.persist(product);
+
+            // Comments would be loaded along with the product by the entity graph
+            Comment comment = new Comment(null, "Nice", 5, product, user);
+            entityManager.persist(comment);
+
+            cart.getItems().add(new CartItem(null, cart, product, i, product.getPrice()));
+            cart.setSubtotal(cart.getSubtotal().add(product.getPrice().multiply(BigDecimal.valueOf(i))));
+            cart.setItemCount(cart.getItemCount() + i);
+        }
+        entityManager.persist(cart);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    @Test
+    void getCartIssuesSingleStatement() {
+        CartDtoDetails cart = cartStore.getCart(userId);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+        assertThat(cart.getUserId()).isEqualTo(userId);
+        assertThat(cart.getItems()).hasSize(5);
+        assertThat(cart.getItems().get(2).getQuantity()).isEqualTo(3);
+        assertThat(cart.getItems().get(2).getProduct().getName()).isEqualTo("Product 3");
+        assertThat(cart.getItems().get(2).getProduct().getPrice()).isEqualByComparingTo("30");
+        assertThat(cart.getItems().get(2).getUnitPrice()).isEqualByComparingTo("30");
+        assertThat(cart.getItems().get(2).isPriceChanged()).isFalse();
+        assertThat(cart.getSubtotal()).isEqualByComparingTo("550");
+        assertThat(cart.getItemCount()).isEqualTo(15);
+    }
+
+    @Test
+    void getCartOfEmptyCartIssuesSingleStatement() {
+        entityManager.getEntityManager()
+                .createQuery("DELETE FROM CartItem")
+                .executeUpdate();
+        statistics.clear();
+
+        CartDtoDetails cart = cartStore.getCart(userId);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(cart.getId()).isNotNull();
+        assertThat(cart.getItems()).isEmpty();
+    }
+}
@@ -0,0 +1,63 @@
+package com.ark.retailpulse.service.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedCounterTest {
+
+    @Test
+    void concurrentTakesNeverOversell() throws Exception {
+        ShardedCounter counter = new ShardedCounter(4, 1000);
+        AtomicInteger taken = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        int quantity = 1 + i % 3;
+                        if (counter.tryTake(quantity)) {
+                            taken.addAndGet(quantity);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(taken.get()).isLessThanOrEqualTo(1000).isGreaterThan(997);
+        assertThat(counter.tryTake(1000 - taken.get() + 1)).isFalse();
+    }
+
+    @Test
+    void takeSpanningShardsPoolsThem() {
+        ShardedCounter counter = new ShardedCounter(4, 10);
+
+        assertThat(counter.tryTake(9)).isTrue();
+        assertThat(counter.tryTake(2)).isFalse();
+        assertThat(counter.tryTake(1)).isTrue();
+        assertThat(counter.tryTake(1)).isFalse();
+    }
+
+    @Test
+    void reconcileMovesCounterToDatabaseStock() {
+        ShardedCounter counter = new ShardedCounter(4, 10);
+        counter.tryTake(4);
+        counter.commit(4);
+
+        // Restocked by 5 while 4 were sold: the database reports 11 available
+        assertThat(counter.reconcile(11, counter.committed())).isEqualTo(5);
+        assertThat(counter.tryTake(11)).isTrue();
+        assertThat(counter.tryTake(1)).isFalse();
+    }
+}
@@ -0,0 +1,144 @@
+package com.ark.retailpulse.service.inventory;
+
+import com.ark.retailpulse.exception.InsufficientStockException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the engine against mocked JDBC templates; {@link #databaseStock} stands in for the
+ * available stock the database reports, i.e. the product quantity minus unflushed deductions.
+ */
+class ShardedInventoryEngineTest {
+
+    private final Map<Long, Long> databaseStock = new HashMap<>();
+    private JdbcTemplate jdbcTemplate;
+    private ShardedInventoryEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        NamedParameterJdbcTemplate namedJdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        doAnswer(invocation -> {
+            Map<String, ?> params = invocation.getArgument(1);
+            RowCallbackHandler handler = invocation.getArgument(2);
+            for (Object id : (Iterable<?>) params.get("ids")) {
+                Long stock = databaseStock.get((Long) id);
+                if (stock != null) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong(1)).thenReturn((Long) id);
+                    when(rs.getLong(2)).thenReturn(stock);
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(namedJdbcTemplate).query(anyString(), anyMap(), any(RowCallbackHandler.class));
+
+        engine = new ShardedInventoryEngine(jdbcTemplate, namedJdbcTemplate, mock(PlatformTransactionManager.class),
+                mock(ApplicationEventPublisher.class), new SimpleMeterRegistry(), 4, 100);
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void rolledBackTakeGivesStockBack() {
+        databaseStock.put(1L, 5L);
+        engine.take(Map.of(1L, 3));
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        assertThatThrownBy(() -> engine.take(Map.of(1L, 3))).isInstanceOf(InsufficientStockException.class);
+
+        endTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        assertThatCode(() -> engine.take(Map.of(1L, 5))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void takeShortOfOneProductTakesNothing() {
+        databaseStock.put(1L, 5L);
+        databaseStock.put(2L, 1L);
+
+        assertThatThrownBy(() -> engine.take(Map.of(1L, 3, 2L, 2))).isInstanceOf(InsufficientStockException.class);
+
+        verifyNoInteractions(jdbcTemplate);
+        assertThatCode(() -> engine.take(Map.of(1L, 5, 2L, 1))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void releasedStockReturnsOnlyOnCommit() {
+        databaseStock.put(1L, 5L);
+        engine.take(Map.of(1L, 5));
+        endTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        engine.release(Map.of(1L, 2));
+        assertThatThrownBy(() -> engine.take(Map.of(1L, 1))).isInstanceOf(InsufficientStockException.class);
+        endTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThatThrownBy(() -> engine.take(Map.of(1L, 1))).isInstanceOf(InsufficientStockException.class);
+
+        engine.release(Map.of(1L, 2));
+        endTransaction(TransactionSynchronization.STATUS_COMMITTED);
+        assertThatCode(() -> engine.take(Map.of(1L, 2))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void reconcilePicksUpRestocks() {
+        databaseStock.put(1L, 10L);
+        engine.take(Map.of(1L, 4));
+        endTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        // The 4 taken are journalled and a restock of 5 arrives
+        databaseStock.put(1L, 11L);
+        engine.reconcile();
+
+        assertThatThrownBy(() -> engine.take(Map.of(1L, 12))).isInstanceOf(InsufficientStockException.class);
+        assertThatCode(() -> engine.take(Map.of(1L, 11))).doesNotThrowAnyException();
+    }
+
+    @Test
+    void reconcileDropsDeletedProducts() {
+        databaseStock.put(1L, 10L);
+        engine.take(Map.of(1L, 1));
+        endTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        databaseStock.remove(1L);
+        engine.reconcile();
+
+        assertThatThrownBy(() -> engine.take(Map.of(1L, 1))).isInstanceOf(InsufficientStockException.class);
+    }
+
+    /**
+     * Ends the current transaction the way the transaction manager would and starts the next one.
+     */
+    private void endTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (status == TransactionSynchronization.STATUS_COMMITTED) {
+            synchronizations.forEach(sync -> sync.beforeCommit(false));
+        }
+        synchronizations.forEach(sync -> sync.afterCompletion(status));
+        TransactionSynchronizationManager.initSynchronization();
+    }
+}
@@ -0,0 +1,82 @@
+package com.ark.retailpulse.service.order;
+
+import com.ark.retailpulse.dto.order.OrderDTO;
+import com.ark.retailpulse.exception.IdempotencyKeyException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Exercises the local fallback, which follows the same rules as the Redis store.
+ */
+class IdempotencyServiceTest {
+
+    private static final String FINGERPRINT = IdempotencyService.fingerprint("Street 1", "5550100");
+
+    private IdempotencyService service;
+
+    @BeforeEach
+    void setUp() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        service = new IdempotencyService(redisTemplate, objectMapper, new SimpleMeterRegistry(),
+                Duration.ofHours(1), Duration.ofMinutes(1), 100);
+    }
+
+    @Test
+    void replaysCompletedResponse() {
+        IdempotencyService.Outcome first = service.begin(1L, "key", FINGERPRINT);
+        assertThat(first.claim()).isNotNull();
+        service.complete(first.claim(), order(42L));
+
+        IdempotencyService.Outcome retry = service.begin(1L, "key", FINGERPRINT);
+        assertThat(retry.claim()).isNull();
+        assertThat(retry.replay().getId()).isEqualTo(42L);
+        assertThat(retry.replay().getCreatedAt()).isNotNull();
+
+        // Keys are scoped per user
+        assertThat(service.begin(2L, "key", FINGERPRINT).claim()).isNotNull();
+    }
+
+    @Test
+    void refusesInFlightAndMismatchedRequests() {
+        service.begin(1L, "key", FINGERPRINT);
+
+        assertThatThrownBy(() -> service.begin(1L, "key", FINGERPRINT))
+                .isInstanceOfSatisfying(IdempotencyKeyException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.CONFLICT));
+        assertThatThrownBy(() -> service.begin(1L, "key", IdempotencyService.fingerprint("Street 2", "5550100")))
+                .isInstanceOfSatisfying(IdempotencyKeyException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+    }
+
+    @Test
+    void abandonedKeyCanBeRetried() {
+        IdempotencyService.Outcome first = service.begin(1L, "key", FINGERPRINT);
+        service.abandon(first.claim());
+
+        assertThat(service.begin(1L, "key", FINGERPRINT).claim()).isNotNull();
+    }
+
+    private static OrderDTO order(Long id) {
+        OrderDTO order = new OrderDTO();
+        order.setId(id);
+        order.setCreatedAt(LocalDateTime.now());
+        return order;
+    }
+}
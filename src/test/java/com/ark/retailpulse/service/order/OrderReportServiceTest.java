@@ -0,0 +1,117 @@
+package com.ark.retailpulse.service.order;
+
+import com.ark.retailpulse.dto.CursorPage;
+import com.ark.retailpulse.dto.order.OrderDTO;
+import com.ark.retailpulse.model.*;
+import com.ark.retailpulse.util.CursorUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({OrderReportService.class, CursorUtil.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class OrderReportServiceTest {
+
+    private static final OrderFilter ALL = new OrderFilter(null, null, null);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderReportService orderReportService;
+
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setEmail("orders@example.com");
+        user.setPassword("secret");
+        user.setPhoneNumber("1234567890");
+        user.setRole(User.Role.USER);
+        entityManager.persist(user);
+
+        Product product = new Product();
+        product.setName("Product");
+        product.setDescription("Description");
+        product.setPrice(BigDecimal.TEN);
+        product.setQuantity(100);
+        entityManager.persist(product);
+
+        for (int i = 1; i <= 3; i++) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setAddress("Street " + i + ", City");
+            order.setPhoneNumber("1234567890");
+            order.setStatus(i == 2 ? Order.OrderStatus.DELIVERED : Order.OrderStatus.PREPARING);
+            order.setCreatedAt(LocalDateTime.of(2024, 1, i, 12, 0));
+            order.setAmount(BigDecimal.valueOf(10L * i));
+            for (int j = 0; j < i; j++) {
+                order.getItems().add(new OrderItem(null, order, product, 1, BigDecimal.TEN));
+            }
+            entityManager.persist(order);
+            orderIds.add(order.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pagesNewestFirstWithItems() {
+        CursorPage<OrderDTO> first = orderReportService.listOrders(ALL, null, 2);
+        assertThat(first.getItems()).extracting(OrderDTO::getId).containsExactly(orderIds.get(2), orderIds.get(1));
+        assertThat(first.getItems().get(0).getOrderItems()).hasSize(3);
+        assertThat(first.isHasNext()).isTrue();
+
+        CursorPage<OrderDTO> second = orderReportService.listOrders(ALL, first.getNextCursor(), 2);
+        assertThat(second.getItems()).extracting(OrderDTO::getId).containsExactly(orderIds.get(0));
+        assertThat(second.isHasNext()).isFalse();
+    }
+
+    @Test
+    void listsAllOrdersOldestFirstWithItems() {
+        List<OrderDTO> orders = orderReportService.listAllOrders(ALL);
+        assertThat(orders).extracting(OrderDTO::getId).containsExactlyElementsOf(orderIds);
+        assertThat(orders).extracting(order -> order.getOrderItems().size()).containsExactly(1, 2, 3);
+    }
+
+    @Test
+    void filtersByStatusAndDate() {
+        assertThat(orderReportService.listOrders(new OrderFilter(Order.OrderStatus.PREPARING, null, null), null, 10).getItems())
+                .extracting(OrderDTO::getId).containsExactly(orderIds.get(2), orderIds.get(0));
+        assertThat(orderReportService.listOrders(new OrderFilter(null,
+                        LocalDateTime.of(2024, 1, 2, 0, 0), LocalDateTime.of(2024, 1, 3, 0, 0)), null, 10).getItems())
+                .extracting(OrderDTO::getId).containsExactly(orderIds.get(1));
+    }
+
+    @Test
+    void exportsOneOrderPerJsonLineAndOneItemPerCsvLine() {
+        ByteArrayOutputStream json = new ByteArrayOutputStream();
+        assertThat(orderReportService.exportNdjson(ALL, json)).isEqualTo(3);
+        String[] orders = json.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(orders).hasSize(3);
+        assertThat(orders[2]).contains("\"id\":" + orderIds.get(2)).contains("\"productId\"");
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        assertThat(orderReportService.exportCsv(ALL, csv)).isEqualTo(3);
+        String[] lines = csv.toString(StandardCharsets.UTF_8).split("\n");
+        // Header plus 1 + 2 + 3 items; addresses contain commas and are quoted
+        assertThat(lines).hasSize(7);
+        assertThat(lines[1]).startsWith(orderIds.get(0) + ",").contains("\"Street 1, City\"");
+    }
+}
@@ -0,0 +1,153 @@
+package com.ark.retailpulse.service.order;
+
+import com.ark.retailpulse.dto.CursorPage;
+import com.ark.retailpulse.dto.order.OrderDTO;
+import com.ark.retailpulse.helper.order.OrderItemHelper;
+import com.ark.retailpulse.mapper.CartMapper;
+import com.ark.retailpulse.mapper.OrderMapperImpl;
+import com.ark.retailpulse.model.*;
+import com.ark.retailpulse.service.cart.CartService;
+import com.ark.retailpulse.service.cart.StockReservationService;
+import com.ark.retailpulse.service.inventory.InventoryEngine;
+import com.ark.retailpulse.service.outbox.OutboxService;
+import com.ark.retailpulse.util.CursorUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({OrderService.class, OrderMapperImpl.class, CursorUtil.class})
+class OrderServiceTest {
+
+    @MockBean
+    private CartService cartService;
+    @MockBean
+    private StockReservationService stockReservationService;
+    @MockBean
+    private OutboxService outboxService;
+    @MockBean
+    private IdempotencyService idempotencyService;
+    @MockBean
+    private CartMapper cartMapper;
+    @MockBean
+    private PaymentService paymentService;
+    @MockBean
+    private OrderItemHelper orderItemHelper;
+    @MockBean
+    private InventoryEngine inventoryEngine;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OrderService orderService;
+
+    private Statistics statistics;
+    private Long userId;
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        User user = new User();
+        user.setEmail("history@example.com");
+        user.setPassword("secret");
+        user.setPhoneNumber("1234567890");
+        user.setRole(User.Role.USER);
+        entityManager.persist(user);
+        userId = user.getId();
+        entityManager.persist(new Cart(null, user, new ArrayList<>(), BigDecimal.ZERO, 0, null));
+
+        // Every item has its own product, so lazy loading would cost a query per item
+        for (int i = 0; i < 5; i++) {
+            Order order = new Order();
+            order.setUser(user);
+            order.setAddress("Street");
+            order.setPhoneNumber("1234567890");
+            order.setStatus(Order.OrderStatus.PREPARING);
+            order.setCreatedAt(LocalDateTime.now());
+            for (int j = 0; j < 3; j++) {
+                Product product = new Product();
+                product.setName("Product " + i + "-" + j);
+                product.setDescription("Description");
+                product.setPrice(BigDecimal.TEN);
+                product.setQuantity(100);
+                entityManager.persist(product);
+                order.getItems().add(new OrderItem(null, order, product, 1, BigDecimal.TEN));
+            }
+            entityManager.persist(order);
+            orderIds.add(order.getId());
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void pagesOrderHistoryInTwoQueriesPerPage() {
+        statistics.clear();
+        CursorPage<OrderDTO> first = orderService.getUserOrders(userId, "", 3);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(first.getItems()).extracting(OrderDTO::getId)
+                .containsExactly(orderIds.get(4), orderIds.get(3), orderIds.get(2));
+        assertThat(first.getItems()).allSatisfy(order -> {
+            assertThat(order.getUserId()).isEqualTo(userId);
+            assertThat(order.getOrderItems()).hasSize(3).allSatisfy(item -> assertThat(item.getProductId()).isNotNull());
+        });
+        assertThat(first.isHasNext()).isTrue();
+
+        entityManager.clear();
+        statistics.clear();
+        CursorPage<OrderDTO> second = orderService.getUserOrders(userId, first.getNextCursor(), 3);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(second.getItems()).extracting(OrderDTO::getId).containsExactly(orderIds.get(1), orderIds.get(0));
+        assertThat(second.isHasNext()).isFalse();
+    }
+
+    @Test
+    void loadsFullOrderHistoryInOneQuery() {
+        statistics.clear();
+        List<OrderDTO> orders = orderService.getUserOrders(userId);
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(orders).hasSize(5).allSatisfy(order -> assertThat(order.getOrderItems()).hasSize(3));
+    }
+
+    @Test
+    void releasesStockOfACancelledOrderOnce() {
+        Long orderId = orderIds.get(0);
+        entityManager.getEntityManager().createQuery("UPDATE Order o SET o.status = :status WHERE o.id = :id")
+                .setParameter("status", Order.OrderStatus.PENDING).setParameter("id", orderId).executeUpdate();
+
+        // Repeated cancels, one nested inside the release and one after it, find the order no longer
+        // PENDING. This runs on one thread and transaction, so it checks the status guard, not a race
+        doAnswer(invocation -> {
+            orderService.cancelPendingOrder(orderId);
+            return null;
+        }).when(inventoryEngine).release(anyMap());
+        orderService.cancelPendingOrder(orderId);
+        orderService.cancelPendingOrder(orderId);
+
+        verify(inventoryEngine, times(1)).release(anyMap());
+        entityManager.clear();
+        assertThat(entityManager.find(Order.class, orderId).getStatus()).isEqualTo(Order.OrderStatus.CANCELED);
+    }
+}
@@ -0,0 +1,143 @@
+package com.ark.retailpulse.service.outbox;
+
+import com.ark.retailpulse.model.Order;
+import com.ark.retailpulse.model.Otp;
+import com.ark.retailpulse.model.OutboxMessage;
+import com.ark.retailpulse.repository.OrderRepository;
+import com.ark.retailpulse.repository.OtpRepository;
+import com.ark.retailpulse.service.emaiil.EmailService;
+import com.ark.retailpulse.service.sms.TwilioOtpService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the dispatcher against a mocked {@link JdbcTemplate}; the claim query leases whatever
+ * is in {@link #claimed} and the recorded outcomes are read back from the batch updates.
+ */
+class OutboxDispatcherTest {
+
+    private static final int MAX_ATTEMPTS = 8;
+
+    private final List<Object[]> claimed = new ArrayList<>();
+    private JdbcTemplate jdbcTemplate;
+    private OrderRepository orderRepository;
+    private OtpRepository otpRepository;
+    private EmailService emailService;
+    private TwilioOtpService twilioOtpService;
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.query(startsWith("UPDATE outbox_message SET next_attempt_at"), any(RowMapper.class), any(), any()))
+                .thenAnswer(invocation -> {
+                    RowMapper<?> mapper = invocation.getArgument(1);
+                    List<Object> rows = new ArrayList<>();
+                    for (Object[] row : claimed) {
+                        ResultSet rs = mock(ResultSet.class);
+                        when(rs.getLong(1)).thenReturn((Long) row[0]);
+                        when(rs.getString(2)).thenReturn(((OutboxMessage.Type) row[1]).name());
+                        when(rs.getLong(3)).thenReturn((Long) row[2]);
+                        when(rs.getInt(4)).thenReturn((Integer) row[3]);
+                        rows.add(mapper.mapRow(rs, rows.size()));
+                    }
+                    claimed.clear();
+                    return rows;
+                });
+        orderRepository = mock(OrderRepository.class);
+        otpRepository = mock(OtpRepository.class);
+        emailService = mock(EmailService.class);
+        twilioOtpService = mock(TwilioOtpService.class);
+        dispatcher = new OutboxDispatcher(jdbcTemplate, mock(PlatformTransactionManager.class), orderRepository,
+                otpRepository, emailService, twilioOtpService, new SimpleMeterRegistry(),
+                10, Duration.ofMinutes(5), MAX_ATTEMPTS, Duration.ofSeconds(5), Duration.ofMinutes(30), Duration.ofDays(7));
+    }
+
+    @Test
+    void recordsTheOutcomeOfEachClaimedMessage() {
+        Order order = new Order();
+        Otp emailOtp = new Otp();
+        Otp smsOtp = new Otp();
+        when(orderRepository.findById(10L)).thenReturn(Optional.of(order));
+        when(orderRepository.findById(40L)).thenReturn(Optional.empty());
+        when(otpRepository.findById(20L)).thenReturn(Optional.of(emailOtp));
+        when(otpRepository.findById(30L)).thenReturn(Optional.of(smsOtp));
+        doThrow(new RuntimeException("mail server down")).when(emailService).sendEmailConfirmationCode(emailOtp);
+        doThrow(new RuntimeException("provider down")).when(twilioOtpService).sendOtp(smsOtp);
+
+        claimed.add(new Object[]{1L, OutboxMessage.Type.ORDER_CONFIRMATION, 10L, 0});
+        claimed.add(new Object[]{2L, OutboxMessage.Type.EMAIL_OTP, 20L, 0});
+        claimed.add(new Object[]{3L, OutboxMessage.Type.SMS_OTP, 30L, MAX_ATTEMPTS - 1});
+        claimed.add(new Object[]{4L, OutboxMessage.Type.ORDER_CONFIRMATION, 40L, 0});
+        dispatcher.dispatch();
+
+        verify(emailService).sendOrderConfirmation(order);
+        Map<String, List<Object[]>> updates = batchUpdates();
+        assertThat(updates.get("delivered")).singleElement().satisfies(row -> assertThat(row).containsExactly(1L));
+
+        // Rows are {status, attempts, next attempt, last error, ID}
+        List<Object[]> undelivered = updates.get("undelivered");
+        assertThat(undelivered).hasSize(3);
+        assertThat(undelivered.get(0)).startsWith("PENDING", 1).endsWith("mail server down", 2L);
+        assertThat(undelivered.get(1)).startsWith("FAILED", MAX_ATTEMPTS).endsWith("provider down", 3L);
+        // A missing subject gives up at once
+        assertThat(undelivered.get(2)).startsWith("FAILED", 1).endsWith(4L);
+    }
+
+    @Test
+    void claimsUntilABatchComesBackShort() {
+        when(orderRepository.findById(anyLong())).thenReturn(Optional.of(new Order()));
+        for (long id = 1; id <= 10; id++) {
+            claimed.add(new Object[]{id, OutboxMessage.Type.ORDER_CONFIRMATION, id, 0});
+        }
+
+        // A full batch, then an empty one
+        dispatcher.dispatch();
+
+        verify(jdbcTemplate, times(2)).query(startsWith("UPDATE outbox_message SET next_attempt_at"), any(RowMapper.class), any(), any());
+        verify(emailService, times(10)).sendOrderConfirmation(any());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void backoffDoublesUpToTheCap() {
+        assertThat(dispatcher.backoff(1)).isEqualTo(Duration.ofSeconds(5));
+        assertThat(dispatcher.backoff(2)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(dispatcher.backoff(5)).isEqualTo(Duration.ofSeconds(80));
+        assertThat(dispatcher.backoff(10)).isEqualTo(Duration.ofMinutes(30));
+        // Large attempt counts must not overflow the shift
+        assertThat(dispatcher.backoff(100)).isEqualTo(Duration.ofMinutes(30));
+    }
+
+    /**
+     * Collects the rows of the two outcome batch updates, keyed delivered or undelivered.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, List<Object[]>> batchUpdates() {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, atLeastOnce()).batchUpdate(sql.capture(), rows.capture());
+        Map<String, List<Object[]>> updates = new HashMap<>();
+        for (int i = 0; i < sql.getAllValues().size(); i++) {
+            updates.put(sql.getAllValues().get(i).contains("'SENT'") ? "delivered" : "undelivered", rows.getAllValues().get(i));
+        }
+        return updates;
+    }
+}